@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import com.powsybl.ws.commons.SecuredZipInputStream;
+import org.apache.commons.io.FilenameUtils;
+import org.gridsuite.boundary.importer.job.BoundaryIndex;
+import org.gridsuite.boundary.importer.job.BoundaryInfo;
+import org.gridsuite.boundary.importer.job.MultipartBodyPublisher;
+import org.gridsuite.boundary.importer.job.TransferableFile;
+import org.gridsuite.boundary.importer.job.UploadCompression;
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.gridsuite.boundary.importer.job.utils.FullModelIdReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+
+/**
+ * Local part of the acquisition of a boundary container, from the downloaded container to the request bodies of its
+ * new boundary files: unzip, file name validation, FullModel id parsing, deduplication and multipart body building.
+ * Half of the boundary files of the container are already known by the cgmes boundary server.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AcquisitionHotPathBenchmark {
+
+    @Param({"2", "20", "80"})
+    private int boundaryCount;
+
+    @Param({"1000", "10000"})
+    private int nodeCount;
+
+    @Param({"NONE", "GZIP"})
+    private UploadCompression compression;
+
+    private byte[] container;
+
+    private BoundaryIndex boundaryIndex;
+
+    @Setup
+    public void setUp() {
+        container = BoundaryBenchmarkData.container(boundaryCount, nodeCount);
+        List<BoundaryInfo> knownBoundaries = new ArrayList<>();
+        for (int i = 0; i < boundaryCount; i += 2) {
+            knownBoundaries.add(new BoundaryInfo(BoundaryBenchmarkData.boundaryId(i), BoundaryBenchmarkData.boundaryFileName(i), null));
+        }
+        boundaryIndex = new BoundaryIndex(knownBoundaries);
+    }
+
+    @Benchmark
+    public long containerHotPath() throws IOException {
+        long uploadedBytes = 0;
+        try (SecuredZipInputStream zis = new SecuredZipInputStream(new ByteArrayInputStream(container), CgmesBoundaryUtils.MAX_ZIP_ENTRIES_COUNT, CgmesBoundaryUtils.MAX_ZIP_SIZE)) {
+            ZipEntry entry = zis.getNextEntry();
+            while (entry != null) {
+                String fileName = FilenameUtils.getName(entry.getName());
+                if (CgmesBoundaryUtils.isBoundaryFileName(fileName)) {
+                    byte[] boundary = zis.readAllBytes();
+                    String id = FullModelIdReader.readId(new ByteArrayInputStream(boundary));
+                    if (boundaryIndex.reserve(id)) {
+                        uploadedBytes += BoundaryBenchmarkData.drain(new MultipartBodyPublisher(compression)
+                            .addFilePart("file", new TransferableFile(fileName, boundary)).build());
+                        // keep the index unchanged for the next invocations
+                        boundaryIndex.release(id);
+                    }
+                }
+                entry = zis.getNextEntry();
+            }
+        }
+        return uploadedBytes;
+    }
+}
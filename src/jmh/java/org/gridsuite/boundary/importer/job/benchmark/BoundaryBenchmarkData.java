@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic boundary data for benchmarks, shaped like 20210315T0000Z__ENTSOE_BD_002.zip and its boundary files.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public final class BoundaryBenchmarkData {
+
+    private BoundaryBenchmarkData() {
+    }
+
+    /**
+     * Build an EQBD like boundary file with a FullModel header followed by {@code nodeCount} boundary nodes.
+     */
+    public static byte[] boundaryFile(String id, int nodeCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>\n")
+            .append("<rdf:RDF xmlns:cim=\"http://iec.ch/TC57/2013/CIM-schema-cim16#\" xmlns:entsoe=\"http://entsoe.eu/CIM/SchemaExtension/3/1#\" ")
+            .append("xmlns:md=\"http://iec.ch/TC57/61970-552/ModelDescription/1#\" xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\">\n")
+            .append("  <md:FullModel rdf:about=\"").append(id).append("\">\n")
+            .append("    <md:Model.created>2020-02-02T18:35:22.781Z</md:Model.created>\n")
+            .append("    <md:Model.scenarioTime>2020-02-02T00:00:00.000Z</md:Model.scenarioTime>\n")
+            .append("    <md:Model.version>2</md:Model.version>\n")
+            .append("    <md:Model.profile>http://entsoe.eu/CIM/EquipmentBoundary/3/1</md:Model.profile>\n")
+            .append("  </md:FullModel>\n");
+        for (int i = 0; i < nodeCount; i++) {
+            sb.append("  <cim:ConnectivityNode rdf:ID=\"_node-").append(i).append("\">\n")
+                .append("    <cim:IdentifiedObject.name>XNODE").append(i).append("</cim:IdentifiedObject.name>\n")
+                .append("    <entsoe:IdentifiedObject.energyIdentCodeEic>10X-NODE-").append(i).append("</entsoe:IdentifiedObject.energyIdentCodeEic>\n")
+                .append("    <cim:ConnectivityNode.ConnectivityNodeContainer rdf:resource=\"#_line-").append(i).append("\"/>\n")
+                .append("  </cim:ConnectivityNode>\n");
+        }
+        sb.append("</rdf:RDF>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build a boundary container holding {@code boundaryCount} boundary files, alternately EQBD and TPBD like in
+     * 20210315T0000Z__ENTSOE_BD_002.zip, each one with {@code nodeCount} boundary nodes.
+     */
+    public static byte[] container(int boundaryCount, int nodeCount) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < boundaryCount; i++) {
+                zos.putNextEntry(new ZipEntry(boundaryFileName(i)));
+                zos.write(boundaryFile(boundaryId(i), nodeCount));
+                zos.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Consume a request body as the http client would, and return its length.
+     */
+    public static long drain(HttpRequest.BodyPublisher bodyPublisher) {
+        CompletableFuture<Long> length = new CompletableFuture<>();
+        bodyPublisher.subscribe(new Flow.Subscriber<>() {
+            private long count;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                count += item.remaining();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                length.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                length.complete(count);
+            }
+        });
+        return length.join();
+    }
+
+    public static String boundaryFileName(int index) {
+        return String.format("20210315T0000Z__ENTSOE_%s_%03d.xml", index % 2 == 0 ? "EQBD" : "TPBD", index);
+    }
+
+    public static String boundaryId(int index) {
+        return String.format("urn:uuid:%08d-aaaa-aaaa-aaaa-aaaaaaaaaaaa", index);
+    }
+}
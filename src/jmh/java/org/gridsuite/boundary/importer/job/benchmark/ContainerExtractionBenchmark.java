@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import com.powsybl.ws.commons.SecuredZipInputStream;
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extraction of the boundary files of a container: sequential unzip of the downloaded container as done in memory and
+ * streaming modes, and central directory access to the staged container as done in spooled mode.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerExtractionBenchmark {
+
+    @Param({"2", "20", "80"})
+    private int boundaryCount;
+
+    @Param({"100", "10000"})
+    private int nodeCount;
+
+    private byte[] container;
+
+    private Path stagedContainer;
+
+    @Setup
+    public void setUp() throws IOException {
+        container = BoundaryBenchmarkData.container(boundaryCount, nodeCount);
+        stagedContainer = Files.createTempFile("benchmark", ".zip");
+        Files.write(stagedContainer, container);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(stagedContainer);
+    }
+
+    @Benchmark
+    public long securedZipInputStream() throws IOException {
+        long size = 0;
+        try (SecuredZipInputStream zis = new SecuredZipInputStream(new ByteArrayInputStream(container), CgmesBoundaryUtils.MAX_ZIP_ENTRIES_COUNT, CgmesBoundaryUtils.MAX_ZIP_SIZE)) {
+            ZipEntry entry = zis.getNextEntry();
+            while (entry != null) {
+                if (CgmesBoundaryUtils.isBoundaryFileName(entry.getName())) {
+                    size += zis.readAllBytes().length;
+                }
+                entry = zis.getNextEntry();
+            }
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int zipFileCentralDirectory() throws IOException {
+        int boundaries = 0;
+        try (ZipFile zipFile = new ZipFile(stagedContainer.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                if (CgmesBoundaryUtils.isBoundaryFileName(entries.nextElement().getName())) {
+                    boundaries++;
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    @Benchmark
+    public long zipFileEntries() throws IOException {
+        long size = 0;
+        try (ZipFile zipFile = new ZipFile(stagedContainer.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (CgmesBoundaryUtils.isBoundaryFileName(entry.getName())) {
+                    try (InputStream is = zipFile.getInputStream(entry)) {
+                        size += is.readAllBytes().length;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import org.gridsuite.boundary.importer.job.BoundaryIndex;
+import org.gridsuite.boundary.importer.job.BoundaryInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplication lookups against the boundaries already known by the cgmes boundary server.
+ * Half of the looked up boundaries are known.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeduplicationBenchmark {
+
+    private static final int LOOKUP_COUNT = 1000;
+
+    @Param({"1000", "100000"})
+    private int knownBoundaryCount;
+
+    private List<BoundaryInfo> knownBoundaries;
+
+    private BoundaryIndex index;
+
+    private String[] ids;
+
+    private String[] fileNames;
+
+    @Setup
+    public void setUp() {
+        knownBoundaries = new ArrayList<>();
+        for (int i = 0; i < knownBoundaryCount; i++) {
+            knownBoundaries.add(new BoundaryInfo(BoundaryBenchmarkData.boundaryId(i), BoundaryBenchmarkData.boundaryFileName(i), null));
+        }
+        index = new BoundaryIndex(knownBoundaries);
+
+        ids = new String[LOOKUP_COUNT];
+        fileNames = new String[LOOKUP_COUNT];
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            int boundary = i % 2 == 0 ? i * (knownBoundaryCount / LOOKUP_COUNT) : knownBoundaryCount + i;
+            ids[i] = BoundaryBenchmarkData.boundaryId(boundary);
+            fileNames[i] = BoundaryBenchmarkData.boundaryFileName(boundary);
+        }
+    }
+
+    @Benchmark
+    public BoundaryIndex buildIndex() {
+        return new BoundaryIndex(knownBoundaries);
+    }
+
+    @Benchmark
+    public int containsId() {
+        int known = 0;
+        for (String id : ids) {
+            if (index.containsId(id)) {
+                known++;
+            }
+        }
+        return known;
+    }
+
+    @Benchmark
+    public int getIdByFilename() {
+        int known = 0;
+        for (String fileName : fileNames) {
+            if (index.getIdByFilename(fileName) != null) {
+                known++;
+            }
+        }
+        return known;
+    }
+
+    @Benchmark
+    public int reserveRelease() {
+        int reserved = 0;
+        for (String id : ids) {
+            if (index.reserve(id)) {
+                index.release(id);
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+}
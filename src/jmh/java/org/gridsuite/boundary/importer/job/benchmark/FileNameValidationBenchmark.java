@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of the file names of a large acquisition directory and of the entries of boundary containers,
+ * with the single pass matchers of {@link CgmesBoundaryUtils} and with the former split/regex based implementation.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileNameValidationBenchmark {
+
+    private static final String[] CONTAINER_NAME_PATTERNS = {
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_BD_%03d.zip",
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_BD_%03d.doc",
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_XX_%03d.zip",
+        "%04d%02d%02dT%02d%02dZ_FOO_ENTSOE_BD_%03d.zip"
+    };
+
+    private static final String[] ENTRY_NAME_PATTERNS = {
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_EQBD_%03d.xml",
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_TPBD_%03d.xml",
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_EQ_%03d.xml",
+        "%04d%02d%02dT%02d%02dZ__ENTSOE_TPBD_%03d.txt"
+    };
+
+    @Param({"100000"})
+    private int fileCount;
+
+    private String[] containerNames;
+
+    private String[] entryNames;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        containerNames = new String[fileCount];
+        entryNames = new String[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            Object[] values = {2015 + random.nextInt(10), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), 1 + random.nextInt(999)};
+            containerNames[i] = String.format(CONTAINER_NAME_PATTERNS[random.nextInt(CONTAINER_NAME_PATTERNS.length)], values);
+            entryNames[i] = String.format(ENTRY_NAME_PATTERNS[random.nextInt(ENTRY_NAME_PATTERNS.length)], values);
+        }
+    }
+
+    @Benchmark
+    public int containerNamesSinglePass() {
+        int valid = 0;
+        for (String name : containerNames) {
+            if (CgmesBoundaryUtils.isValidBoundaryContainerFileName(name)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int containerNamesSplit() {
+        int valid = 0;
+        for (String name : containerNames) {
+            if (isValidBoundaryContainerFileNameWithSplit(name)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int entryNamesSinglePass() {
+        int valid = 0;
+        for (String name : entryNames) {
+            if (CgmesBoundaryUtils.isBoundaryFileName(name)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int entryNamesRegex() {
+        int valid = 0;
+        for (String name : entryNames) {
+            if (name.matches(CgmesBoundaryUtils.EQBD_FILE_REGEX) || name.matches(CgmesBoundaryUtils.TPBD_FILE_REGEX)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    // former implementation of CgmesBoundaryUtils.isValidBoundaryContainerFileName, kept as a baseline
+    private static boolean isValidBoundaryContainerFileNameWithSplit(String filename) {
+        if (filename.split("[.]").length == 2) {
+            String base = filename.split("[.]")[0];
+            String ext = filename.split("[.]")[1];
+            if (ext.equals("zip") && base.split("_").length == 5) {
+                String[] parts = base.split("_");
+                if (parts[1].isEmpty() && parts[2].equals("ENTSOE") && parts[3].equals("BD")) {
+                    try {
+                        int v = Integer.parseInt(parts[4]);
+                        return parts[4].length() == 3 && v > 0 && v < 1000;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
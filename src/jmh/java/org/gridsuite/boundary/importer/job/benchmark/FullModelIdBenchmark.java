@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import com.powsybl.cgmes.model.FullModel;
+import org.gridsuite.boundary.importer.job.utils.FullModelIdReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the extraction of a boundary file id with {@link FullModel#parse} and with {@link FullModelIdReader}.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FullModelIdBenchmark {
+
+    @Param({"0", "1000", "100000"})
+    private int nodeCount;
+
+    private byte[] boundaryFile;
+
+    @Setup
+    public void setUp() {
+        boundaryFile = BoundaryBenchmarkData.boundaryFile("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa", nodeCount);
+    }
+
+    @Benchmark
+    public String fullModelParse() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(boundaryFile), StandardCharsets.UTF_8)) {
+            return FullModel.parse(reader).getId();
+        }
+    }
+
+    @Benchmark
+    public String fullModelIdReader() throws IOException {
+        return FullModelIdReader.readId(new ByteArrayInputStream(boundaryFile));
+    }
+}
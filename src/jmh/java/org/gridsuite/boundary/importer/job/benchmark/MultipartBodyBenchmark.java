@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.benchmark;
+
+import org.gridsuite.boundary.importer.job.MultipartBodyPublisher;
+import org.gridsuite.boundary.importer.job.TransferableFile;
+import org.gridsuite.boundary.importer.job.UploadCompression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and publishing the multipart body of a boundary file upload, without sending it.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultipartBodyBenchmark {
+
+    @Param({"100", "10000"})
+    private int nodeCount;
+
+    @Param({"NONE", "GZIP"})
+    private UploadCompression compression;
+
+    private TransferableFile boundaryFile;
+
+    @Setup
+    public void setUp() {
+        boundaryFile = new TransferableFile(BoundaryBenchmarkData.boundaryFileName(0),
+                                            BoundaryBenchmarkData.boundaryFile(BoundaryBenchmarkData.boundaryId(0), nodeCount));
+    }
+
+    @Benchmark
+    public long multipartBody() {
+        return BoundaryBenchmarkData.drain(new MultipartBodyPublisher(compression).addFilePart("file", boundaryFile).build());
+    }
+}
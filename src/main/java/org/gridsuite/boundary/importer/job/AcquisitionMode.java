@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+/**
+ * How boundary containers are acquired from the acquisition server.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public enum AcquisitionMode {
+    /**
+     * The whole container is downloaded in memory before being unzipped.
+     */
+    IN_MEMORY,
+
+    /**
+     * The container is unzipped while it is downloaded, only one boundary file is held in memory at a time.
+     */
+    STREAMING,
+
+    /**
+     * The container is downloaded to a local spool file, resuming interrupted downloads, then unzipped from the file.
+     */
+    SPOOLED
+}
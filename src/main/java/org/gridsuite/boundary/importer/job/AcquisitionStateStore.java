@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import org.gridsuite.boundary.importer.job.utils.BoundaryContainerFileName;
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Boundary containers already processed, keyed by container name, remote size and last modification time.
+ * When a state directory is given, the state is persisted in an append-only file so that the next runs
+ * skip the containers that did not change on the acquisition server. It also holds the watermark used to only
+ * list the containers newer than the ones already processed.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class AcquisitionStateStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AcquisitionStateStore.class);
+
+    static final String STATE_FILE_NAME = "acquisition-state.log";
+
+    static final String WATERMARK_FILE_NAME = "acquisition-watermark";
+
+    private static final String SEPARATOR = "\t";
+
+    private final Path stateFile;
+
+    // size and last modification time of the last processed version of each container
+    private final Map<String, String> processedContainers = new ConcurrentHashMap<>();
+
+    // newest container such that all the containers up to it have been processed
+    private BoundaryContainerFileName watermark;
+
+    /**
+     * In memory state, not persisted.
+     */
+    public AcquisitionStateStore() {
+        stateFile = null;
+    }
+
+    private AcquisitionStateStore(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    public static AcquisitionStateStore load(Path stateDirectory) throws IOException {
+        Files.createDirectories(stateDirectory);
+        AcquisitionStateStore store = new AcquisitionStateStore(stateDirectory.resolve(STATE_FILE_NAME));
+        if (Files.exists(store.stateFile)) {
+            List<String> lines = Files.readAllLines(store.stateFile, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                int index = line.indexOf(SEPARATOR);
+                if (index > 0) {
+                    store.processedContainers.put(line.substring(0, index), line.substring(index + 1));
+                } else {
+                    LOGGER.warn("Ignoring invalid acquisition state line '{}'", line);
+                }
+            }
+            if (lines.size() > store.processedContainers.size()) {
+                // only keep the last state of each container
+                store.compact();
+            }
+        }
+        Path watermarkFile = stateDirectory.resolve(WATERMARK_FILE_NAME);
+        if (Files.exists(watermarkFile)) {
+            String watermarkName = Files.readString(watermarkFile, StandardCharsets.UTF_8).trim();
+            store.watermark = CgmesBoundaryUtils.parseBoundaryContainerFileName(watermarkName).orElse(null);
+            if (store.watermark == null) {
+                LOGGER.warn("Ignoring invalid acquisition watermark '{}'", watermarkName);
+            }
+        }
+        return store;
+    }
+
+    private static String version(BoundaryContainerInfo container) {
+        return container.getSize() + SEPARATOR + container.getLastModifiedTime();
+    }
+
+    public boolean isUnchanged(BoundaryContainerInfo container) {
+        return version(container).equals(processedContainers.get(container.getName()));
+    }
+
+    public synchronized void markProcessed(BoundaryContainerInfo container) throws IOException {
+        String version = version(container);
+        if (!version.equals(processedContainers.put(container.getName(), version)) && stateFile != null) {
+            Files.writeString(stateFile, container.getName() + SEPARATOR + version + System.lineSeparator(), StandardCharsets.UTF_8,
+                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    public synchronized Optional<BoundaryContainerFileName> getWatermark() {
+        return Optional.ofNullable(watermark);
+    }
+
+    public synchronized void setWatermark(BoundaryContainerFileName watermark) throws IOException {
+        this.watermark = watermark;
+        if (stateFile != null) {
+            Path watermarkFile = stateFile.resolveSibling(WATERMARK_FILE_NAME);
+            Path tmpFile = stateFile.resolveSibling(WATERMARK_FILE_NAME + ".tmp");
+            Files.writeString(tmpFile, watermark.getName(), StandardCharsets.UTF_8);
+            Files.move(tmpFile, watermarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tmpFile = stateFile.resolveSibling(STATE_FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> processedContainer : processedContainers.entrySet()) {
+                writer.write(processedContainer.getKey() + SEPARATOR + processedContainer.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(tmpFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
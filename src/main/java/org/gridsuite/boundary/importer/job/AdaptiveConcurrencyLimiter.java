@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import java.time.Duration;
+
+/**
+ * Limit of the requests in flight to the cgmes boundary server, adjusted from the observed responses (AIMD):
+ * the limit grows by one after a full window of fast successful responses while the limit is reached, and is
+ * halved on a failure or a response slower than the latency threshold. Requests started before the last decrease
+ * do not decrease the limit again, so that a burst of failures only halves it once.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_LIMIT = 1;
+
+    private static final double DECREASE_RATIO = 0.5;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private double limit;
+
+    private int inFlight;
+
+    private long lastDecreaseNanos;
+
+    private long decreaseCount;
+
+    /**
+     * @param initialLimit limit of the requests in flight before any response is observed
+     * @param maxLimit the limit never grows over it
+     * @param latencyThreshold responses slower than this decrease the limit
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, Duration latencyThreshold) {
+        if (initialLimit < MIN_LIMIT || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + initialLimit + ", " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+    }
+
+    /**
+     * Wait until a request can be sent without exceeding the limit.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= getLimit()) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Adjust the limit from the response of a request sent at the given {@link System#nanoTime()}.
+     *
+     * @param failed true if the request failed or the server answered that it is overloaded
+     */
+    public synchronized void onResponse(long requestStartNanos, boolean failed) {
+        long now = System.nanoTime();
+        if (failed || now - requestStartNanos > latencyThresholdNanos) {
+            if (decreaseCount == 0 || requestStartNanos - lastDecreaseNanos > 0) {
+                limit = Math.max(MIN_LIMIT, Math.floor(limit * DECREASE_RATIO));
+                lastDecreaseNanos = now;
+                decreaseCount++;
+            }
+        } else if (inFlight >= getLimit() && limit < maxLimit) {
+            // only grow a limit which is actually used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            notifyAll();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Number of times the limit has been decreased after a failure or a slow response.
+     */
+    public synchronized long getDecreaseCount() {
+        return decreaseCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "limit=" + getLimit() + "/" + maxLimit + ", inFlight=" + inFlight + ", decreases=" + decreaseCount;
+    }
+}
@@ -6,25 +6,20 @@
  */
 package org.gridsuite.boundary.importer.job;
 
-import com.powsybl.cgmes.model.FullModel;
 import com.powsybl.commons.PowsyblException;
 import com.powsybl.commons.config.ModuleConfig;
 import com.powsybl.commons.config.PlatformConfig;
-import com.powsybl.ws.commons.SecuredZipInputStream;
-import org.apache.commons.io.FilenameUtils;
-import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.gridsuite.boundary.importer.job.utils.BoundaryContainerFileName;
+import org.gridsuite.boundary.importer.job.utils.PollingBackoff;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.zip.ZipEntry;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
@@ -33,67 +28,155 @@ public final class BoundaryAcquisitionJob {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BoundaryAcquisitionJob.class);
 
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+
     private BoundaryAcquisitionJob() {
     }
 
-    private static void importBoundary(byte[] boundaryContent,
-                                       List<BoundaryInfo> allBoundaryInfos,
-                                       String fileName,
-                                       CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
-                                       List<String> filesImported,
-                                       List<String> filesAlreadyImported,
-                                       List<String> filesImportFailed) throws IOException, InterruptedException {
-        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(boundaryContent))) {
-            // parse full model to get the id
-            FullModel fullModel = FullModel.parse(reader);
-            String id = fullModel.getId();
-
-            if (allBoundaryInfos.stream().noneMatch(b -> b.getId().equals(id))) {
-                // import the boundary to the cgmes boundary server
-                LOGGER.info("Importing boundary file '{}'...", fileName);
-
-                boolean importOk = cgmesBoundaryServiceRequester.importBoundary(new TransferableFile(fileName, boundaryContent));
-                if (importOk) {
-                    filesImported.add(fileName);
-                } else {
-                    filesImportFailed.add(fileName);
-                }
-            } else {
-                filesAlreadyImported.add(fileName);
+    /**
+     * Move the watermark up to the newest listed container such that all the containers up to it have been processed.
+     */
+    private static void advanceWatermark(List<BoundaryContainerInfo> filesFound, AcquisitionStateStore stateStore) throws IOException {
+        BoundaryContainerFileName watermark = null;
+        for (BoundaryContainerInfo container : filesFound) {
+            if (!stateStore.isUnchanged(container)) {
+                break;
             }
+            watermark = container.getFileName();
+        }
+        if (watermark != null) {
+            stateStore.setWatermark(watermark);
         }
     }
 
-    private static void handleZipBoundaryContainer(TransferableFile acquiredFile,
-                                                   List<BoundaryInfo> allBoundaryInfos,
-                                                   CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
-                                                   List<String> filesImported,
-                                                   List<String> filesAlreadyImported,
-                                                   List<String> filesImportFailed) throws IOException, InterruptedException {
-        String fileName;
-        try (SecuredZipInputStream zis = new SecuredZipInputStream(new ByteArrayInputStream(acquiredFile.getData()), CgmesBoundaryUtils.MAX_ZIP_ENTRIES_COUNT, CgmesBoundaryUtils.MAX_ZIP_SIZE)) {
-            ZipEntry entry = zis.getNextEntry();
-            while (entry != null) {
-                if (new File(entry.getName()).getCanonicalPath().startsWith("..")) {
-                    throw new IllegalStateException("Entry is trying to leave the target dir: " + entry.getName());
-                }
+    /**
+     * State kept between the polls of the acquisition server.
+     */
+    static final class AcquisitionContext {
+
+        private final AcquisitionStateStore stateStore;
+
+        private final BoundaryInfosCache boundaryInfosCache;
+
+        private final BoundaryContentIndex contentIndex;
 
-                // Remove repertory name before file name
-                fileName = FilenameUtils.getName(entry.getName());
+        // ETag of the boundary infos the index was built from, the index is kept while they are unchanged on the server
+        private String boundaryIndexETag;
 
-                // Check if it is a boundary file
-                if (!fileName.equals("") &&
-                    (fileName.matches(CgmesBoundaryUtils.EQBD_FILE_REGEX) ||
-                        fileName.matches(CgmesBoundaryUtils.TPBD_FILE_REGEX))) {
+        private BoundaryIndex boundaryIndex;
 
-                    byte[] boundaryContent = zis.readAllBytes();
+        AcquisitionContext(BoundaryImportParameters parameters) throws IOException {
+            stateStore = parameters.getStateDirectory().isPresent()
+                ? AcquisitionStateStore.load(parameters.getStateDirectory().get())
+                : new AcquisitionStateStore();
+            boundaryInfosCache = parameters.getStateDirectory().isPresent()
+                ? BoundaryInfosCache.load(parameters.getStateDirectory().get())
+                : new BoundaryInfosCache();
+            contentIndex = parameters.getStateDirectory().isPresent()
+                ? BoundaryContentIndex.load(parameters.getStateDirectory().get())
+                : new BoundaryContentIndex();
+        }
+    }
 
-                    importBoundary(boundaryContent, allBoundaryInfos, fileName, cgmesBoundaryServiceRequester, filesImported, filesAlreadyImported, filesImportFailed);
+    /**
+     * Acquire the new boundary containers found on the acquisition server.
+     *
+     * @return the number of containers to acquire found on the server
+     */
+    static int acquire(BoundaryAcquisitionServer boundaryAcquisitionServer, CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
+                       String boundaryDirectory, BoundaryImportParameters parameters, AcquisitionContext context) throws IOException, InterruptedException {
+        JobMetrics metrics = new JobMetrics();
+        AcquisitionStateStore stateStore = context.stateStore;
+
+        BoundaryContainerFileName watermark = parameters.isIncrementalListing() ? stateStore.getWatermark().orElse(null) : null;
+        long listStart = System.nanoTime();
+        List<BoundaryContainerInfo> filesFound = boundaryAcquisitionServer.listFiles(boundaryDirectory, watermark);
+        metrics.record(JobMetrics.Stage.LIST_FILES, listStart);
+        LOGGER.info("{} files found on server", filesFound.size());
+
+        // skip the containers which did not change since they were processed by a previous run
+        List<BoundaryContainerInfo> filesToAcquire = filesFound.stream().filter(f -> !stateStore.isUnchanged(f)).collect(Collectors.toList());
+        LOGGER.info("{} files unchanged since last run", filesFound.size() - filesToAcquire.size());
+
+        BoundaryImportReport report = new BoundaryImportReport();
+
+        if (!filesToAcquire.isEmpty()) {
+            // Get all available boundary infos from cgmes boundary server
+            long infosStart = System.nanoTime();
+            Optional<List<BoundaryInfo>> boundariesInfos = cgmesBoundaryServiceRequester.fetchBoundariesInfos(context.boundaryInfosCache);
+            metrics.record(JobMetrics.Stage.GET_BOUNDARIES_INFOS, infosStart);
+            if (boundariesInfos.isPresent()) {
+                // the index of a previous poll also holds the boundaries imported since, it is rebuilt when the infos changed on the server
+                String eTag = context.boundaryInfosCache.getETag().orElse(null);
+                if (context.boundaryIndex == null || eTag == null || !eTag.equals(context.boundaryIndexETag)) {
+                    context.boundaryIndexETag = eTag;
+                    context.boundaryIndex = new BoundaryIndex(boundariesInfos.get());
                 }
+            } else if (context.boundaryIndex != null) {
+                LOGGER.warn("Boundary infos not available, the boundary infos of the previous poll are used");
+            } else if (parameters.isDaemon()) {
+                // retried on the next poll, rather than importing again all the boundary files
+                throw new IOException("Boundary infos not available");
+            } else {
+                context.boundaryIndex = new BoundaryIndex(List.of());
+            }
+
+            BoundaryImportPipeline pipeline = new BoundaryImportPipeline(boundaryAcquisitionServer, cgmesBoundaryServiceRequester, parameters, metrics);
+            pipeline.run(filesToAcquire, context.boundaryIndex, context.contentIndex, report);
+
+            for (BoundaryContainerInfo container : report.getContainersImported()) {
+                stateStore.markProcessed(container);
+            }
+            advanceWatermark(filesFound, stateStore);
+        }
 
-                entry = zis.getNextEntry();
+        LOGGER.info("===== JOB EXECUTION SUMMARY =====");
+        LOGGER.info("{} files already imported", report.getFilesAlreadyImported().size());
+        List<String> filesImported = report.getFilesImported();
+        LOGGER.info("{} files successfully imported", filesImported.size());
+        filesImported.forEach(f -> LOGGER.info("File '{}' successfully imported", f));
+        List<String> filesImportFailed = report.getFilesImportFailed();
+        LOGGER.info("{} files import failed", filesImportFailed.size());
+        filesImportFailed.forEach(f -> LOGGER.info("File '{}' import failed !!", f));
+        metrics.log(LOGGER);
+        LOGGER.info("Upload limiter: {}", cgmesBoundaryServiceRequester.getUploadLimiter());
+        LOGGER.info("=================================");
+
+        Optional<Path> runReportFile = parameters.getRunReportFile();
+        if (runReportFile.isPresent()) {
+            try {
+                metrics.writeReport(runReportFile.get(), report);
+            } catch (IOException e) {
+                LOGGER.warn("Error while writing run report '{}': {}", runReportFile.get(), e.getMessage());
             }
         }
+        return filesToAcquire.size();
+    }
+
+    /**
+     * Poll the acquisition server until the job is interrupted. The sessions of the acquisition server, the http
+     * client of the cgmes boundary server and the acquisition state stay in memory between the polls.
+     */
+    static void poll(BoundaryAcquisitionServer boundaryAcquisitionServer, CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
+                     String boundaryDirectory, BoundaryImportParameters parameters, AcquisitionContext context) {
+        PollingBackoff backoff = new PollingBackoff(parameters.getPollInterval(), parameters.getMaxPollInterval());
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int containersFound = 0;
+                try {
+                    containersFound = acquire(boundaryAcquisitionServer, cgmesBoundaryServiceRequester, boundaryDirectory, parameters, context);
+                } catch (IOException | RuntimeException e) {
+                    // errors are retried on the next poll
+                    LOGGER.error("Job execution error: {}", e.getMessage());
+                }
+                Duration delay = backoff.next(containersFound > 0);
+                LOGGER.debug("Next poll in {} ms", delay.toMillis());
+                Thread.sleep(delay.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Polling stopped");
     }
 
     public static void main(String... args) {
@@ -102,41 +185,36 @@ public final class BoundaryAcquisitionJob {
 
         ModuleConfig moduleConfigAcquisitionServer = platformConfig.getOptionalModuleConfig("acquisition-server").orElseThrow(() -> new PowsyblException("Module acquisition-server not found !!"));
         ModuleConfig moduleConfigCgmesBoundaryServer = platformConfig.getOptionalModuleConfig("cgmes-boundary-server").orElseThrow(() -> new PowsyblException("Module cgmes-boundary-server not found !!"));
-
-        final CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester(moduleConfigCgmesBoundaryServer.getStringProperty("url"));
+        BoundaryImportParameters parameters = BoundaryImportParameters.load(platformConfig);
+
+        final CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester(moduleConfigCgmesBoundaryServer.getStringProperty("url"), parameters);
+
+        if (parameters.isDaemon()) {
+            // stop polling and release the acquisition server sessions on shutdown
+            Thread mainThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                mainThread.interrupt();
+                try {
+                    mainThread.join(SHUTDOWN_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
 
         try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer(moduleConfigAcquisitionServer.getStringProperty("url"),
                                                                          moduleConfigAcquisitionServer.getStringProperty("username"),
-                                                                         moduleConfigAcquisitionServer.getStringProperty("password"))) {
+                                                                         moduleConfigAcquisitionServer.getStringProperty("password"),
+                                                                         parameters.getSessionPoolSize())) {
             boundaryAcquisitionServer.open();
 
+            AcquisitionContext context = new AcquisitionContext(parameters);
             String boundaryDirectory = moduleConfigAcquisitionServer.getStringProperty("cgmes-boundary-directory");
-            Map<String, String> filesToAcquire = boundaryAcquisitionServer.listFiles(boundaryDirectory);
-            LOGGER.info("{} files found on server", filesToAcquire.size());
-
-            List<String> filesImported = new ArrayList<>();
-            List<String> filesAlreadyImported = new ArrayList<>();
-            List<String> filesImportFailed = new ArrayList<>();
-
-            if (!filesToAcquire.isEmpty()) {
-                // Get all available boundary infos from cgmes boundary server
-                List<BoundaryInfo> allBoundaryInfos = cgmesBoundaryServiceRequester.getBoundariesInfos();
-
-                for (Map.Entry<String, String> fileInfo : filesToAcquire.entrySet()) {
-                    // get boundary container zip file
-                    TransferableFile acquiredFile = boundaryAcquisitionServer.getFile(fileInfo.getKey(), fileInfo.getValue());
-
-                    handleZipBoundaryContainer(acquiredFile, allBoundaryInfos, cgmesBoundaryServiceRequester, filesImported, filesAlreadyImported, filesImportFailed);
-                }
+            if (parameters.isDaemon()) {
+                poll(boundaryAcquisitionServer, cgmesBoundaryServiceRequester, boundaryDirectory, parameters, context);
+            } else {
+                acquire(boundaryAcquisitionServer, cgmesBoundaryServiceRequester, boundaryDirectory, parameters, context);
             }
-
-            LOGGER.info("===== JOB EXECUTION SUMMARY =====");
-            LOGGER.info("{} files already imported", filesAlreadyImported.size());
-            LOGGER.info("{} files successfully imported", filesImported.size());
-            filesImported.forEach(f -> LOGGER.info("File '{}' successfully imported", f));
-            LOGGER.info("{} files import failed", filesImportFailed.size());
-            filesImportFailed.forEach(f -> LOGGER.info("File '{}' import failed !!", f));
-            LOGGER.info("=================================");
         } catch (InterruptedException exc) {
             LOGGER.error("Job interruption  error: {}", exc.getMessage());
             Thread.currentThread().interrupt();
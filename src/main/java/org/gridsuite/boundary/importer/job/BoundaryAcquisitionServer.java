@@ -6,26 +6,57 @@
  */
 package org.gridsuite.boundary.importer.job;
 
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemConfigBuilder;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.auth.StaticUserAuthenticator;
 import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 import org.apache.commons.vfs2.provider.ftp.FtpFileSystemConfigBuilder;
 import org.apache.commons.vfs2.provider.sftp.SftpFileSystemConfigBuilder;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+import org.gridsuite.boundary.importer.job.utils.BoundaryContainerFileName;
 import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.zip.ZipFile;
 
 /**
+ * Access to the boundary containers of the SFTP/FTP acquisition server.
+ * Files are accessed through a pool of long-lived sessions: each session has its own VFS file system, hence its own
+ * connection, that is opened and authenticated once then reused for all the files it transfers.
+ *
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
  */
 public class BoundaryAcquisitionServer implements AutoCloseable {
@@ -33,13 +64,63 @@ public class BoundaryAcquisitionServer implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(BoundaryAcquisitionServer.class);
 
     private final StandardFileSystemManager fsManager = new StandardFileSystemManager();
-    private final FileSystemOptions fsOptions = new FileSystemOptions();
     private static final int CONNECTION_TIMEOUT = 30000;
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
 
     private String serverUrl;
 
+    private final int sessionPoolSize;
+
+    // file system options of the idle sessions
+    private final BlockingQueue<FileSystemOptions> idleSessions;
+
+    private final AtomicLong checkoutCount = new AtomicLong();
+
+    private final AtomicLong checkoutWaitNanos = new AtomicLong();
+
+    // downloads the byte ranges of large containers in parallel
+    private final ExecutorService rangeExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * Distinct file system options make VFS open a distinct file system for each session.
+     */
+    private static final class SessionConfigBuilder extends FileSystemConfigBuilder {
+
+        private static final SessionConfigBuilder INSTANCE = new SessionConfigBuilder();
+
+        private SessionConfigBuilder() {
+            super("acquisition.session.");
+        }
+
+        private void setSessionId(FileSystemOptions fsOptions, int sessionId) {
+            setParam(fsOptions, "id", Integer.valueOf(sessionId));
+        }
+
+        @Override
+        protected Class<? extends FileSystem> getConfigClass() {
+            return FileSystem.class;
+        }
+    }
+
     public BoundaryAcquisitionServer(String url, String userName, String password) throws FileSystemException {
+        this(url, userName, password, 1);
+    }
+
+    /**
+     * @param sessionPoolSize number of sessions, hence of files that can be transferred at the same time
+     */
+    public BoundaryAcquisitionServer(String url, String userName, String password, int sessionPoolSize) throws FileSystemException {
         serverUrl = url;
+        this.sessionPoolSize = sessionPoolSize;
+        idleSessions = new ArrayBlockingQueue<>(sessionPoolSize);
+        for (int i = 0; i < sessionPoolSize; i++) {
+            idleSessions.add(createSessionOptions(i, userName, password));
+        }
+    }
+
+    private static FileSystemOptions createSessionOptions(int sessionId, String userName, String password) throws FileSystemException {
+        FileSystemOptions fsOptions = new FileSystemOptions();
+        SessionConfigBuilder.INSTANCE.setSessionId(fsOptions, sessionId);
 
         StaticUserAuthenticator auth = new StaticUserAuthenticator(null, userName, password);
         DefaultFileSystemConfigBuilder.getInstance().setUserAuthenticator(fsOptions, auth);
@@ -51,45 +132,294 @@ public class BoundaryAcquisitionServer implements AutoCloseable {
         FtpFileSystemConfigBuilder.getInstance().setUserDirIsRoot(fsOptions, true);
         FtpFileSystemConfigBuilder.getInstance().setConnectTimeout(fsOptions, CONNECTION_TIMEOUT);
         FtpFileSystemConfigBuilder.getInstance().setPassiveMode(fsOptions, true);
+        return fsOptions;
     }
 
     public void open() throws FileSystemException {
         fsManager.init();
     }
 
-    public Map<String, String> listFiles(String acquisitionDirPath) throws IOException {
-        FileObject serverRoot = fsManager.resolveFile(serverUrl, fsOptions);
-        FileObject acquisitionDirectory = serverRoot.resolveFile(acquisitionDirPath);
-        List<FileObject> childrenFiles = Arrays.stream(acquisitionDirectory.getChildren()).filter(f -> {
-            try {
-                // filter on zip files that matches pattern
-                return f.isFile() && CgmesBoundaryUtils.isValidBoundaryContainerFileName(f.getName().getBaseName());
-            } catch (FileSystemException e) {
-                LOGGER.warn(e.getMessage());
-                return false;
+    private FileSystemOptions checkoutSession() throws IOException {
+        long start = System.nanoTime();
+        try {
+            FileSystemOptions session = idleSessions.take();
+            checkoutCount.incrementAndGet();
+            checkoutWaitNanos.addAndGet(System.nanoTime() - start);
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an acquisition server session");
+        }
+    }
+
+    private void releaseSession(FileSystemOptions session) {
+        idleSessions.add(session);
+    }
+
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
+    public int getIdleSessionCount() {
+        return idleSessions.size();
+    }
+
+    /**
+     * Number of session checkouts, one per listing or file transfer.
+     */
+    public long getSessionCheckoutCount() {
+        return checkoutCount.get();
+    }
+
+    /**
+     * Total time spent waiting for an idle session, in nanoseconds.
+     */
+    public long getSessionCheckoutWaitNanos() {
+        return checkoutWaitNanos.get();
+    }
+
+    public List<BoundaryContainerInfo> listFiles(String acquisitionDirPath) throws IOException {
+        return listFiles(acquisitionDirPath, null);
+    }
+
+    /* List the boundary containers of the acquisition directory, ordered by effective datetime and version.
+    When a watermark is given, only the containers newer than the watermark are listed.
+    The type, size and last modification time of the children are the ones of the directory listing response, so that
+    listing does not need a round trip per file. Children are filtered by name before any of them is read.
+     */
+    public List<BoundaryContainerInfo> listFiles(String acquisitionDirPath, BoundaryContainerFileName since) throws IOException {
+        FileSystemOptions session = checkoutSession();
+        try {
+            FileObject serverRoot = fsManager.resolveFile(serverUrl, session);
+            FileObject acquisitionDirectory = serverRoot.resolveFile(acquisitionDirPath);
+
+            List<BoundaryContainerInfo> containers = new ArrayList<>();
+            for (FileObject child : acquisitionDirectory.getChildren()) {
+                try {
+                    // filter on zip files that matches pattern
+                    Optional<BoundaryContainerFileName> childFileName = CgmesBoundaryUtils.parseBoundaryContainerFileName(child.getName().getBaseName());
+                    if (childFileName.isPresent() && (since == null || childFileName.get().compareTo(since) > 0) && child.isFile()) {
+                        String childUrl = child.getName().getURI();
+                        FileContent childContent = child.getContent();
+                        containers.add(new BoundaryContainerInfo(childFileName.get(), childUrl, childContent.getSize(), childContent.getLastModifiedTime()));
+                    }
+                } catch (FileSystemException e) {
+                    LOGGER.warn(e.getMessage());
+                }
             }
-        }).collect(Collectors.toList());
+            containers.sort(Comparator.comparing(BoundaryContainerInfo::getFileName));
+
+            return containers;
+        } finally {
+            releaseSession(session);
+        }
+    }
 
-        Map<String, String> childrenUrls = new HashMap<>();
-        for (FileObject child : childrenFiles) {
+    public TransferableFile getFile(String fileName, String fileUrl) throws IOException {
+        FileSystemOptions session = checkoutSession();
+        try (FileObject file = fsManager.resolveFile(fileUrl, session)) {
+            return new TransferableFile(fileName, file.getContent().getByteArray());
+        } finally {
+            releaseSession(session);
+        }
+    }
+
+    /* Open the remote file content as a stream, so that it can be consumed while it is downloaded.
+    The session is held until the returned stream is closed.
+     */
+    public InputStream openFile(String fileUrl) throws IOException {
+        FileSystemOptions session = checkoutSession();
+        try {
+            FileObject file = fsManager.resolveFile(fileUrl, session);
+            return new FilterInputStream(file.getContent().getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        try {
+                            file.close();
+                        } finally {
+                            releaseSession(session);
+                        }
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            releaseSession(session);
+            throw e;
+        }
+    }
+
+    /**
+     * Download the container to a file of the spool directory, unless this version of the container is already staged there.
+     * The download resumes from the partial files left by a previous attempt on the same version of the container,
+     * and containers larger than the range size are downloaded in parallel byte ranges over several sessions.
+     * The downloaded file is checked against the listed size and zip structure before being returned,
+     * then the number of bytes fetched by this call is passed to {@code downloadedBytes}: 0 for an already staged container.
+     */
+    public Path spoolFile(BoundaryContainerInfo container, Path spoolDirectory, long rangeSize, LongConsumer downloadedBytes) throws IOException {
+        // staged and partial files are named after the version of the container, a changed container is downloaded again
+        String stagedName = container.getName() + "." + container.getSize() + "-" + container.getLastModifiedTime();
+
+        // partial files are also named after their byte range, which depends on the session pool size and range size
+        long size = container.getSize();
+        int rangeCount = (int) Math.max(1, Math.min(sessionPoolSize, (size + rangeSize - 1) / rangeSize));
+        long rangeLength = (size + rangeCount - 1) / rangeCount;
+        List<Path> parts = new ArrayList<>();
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < rangeCount; i++) {
+            long start = Math.min(size, i * rangeLength);
+            long end = Math.min(size, start + rangeLength);
+            parts.add(spoolDirectory.resolve(stagedName + ".part" + start + "-" + end));
+            ranges.add(new long[] {start, end});
+        }
+
+        Path spooledFile = spoolDirectory.resolve(stagedName);
+        List<Path> keptFiles = new ArrayList<>(parts);
+        keptFiles.add(spooledFile);
+        deleteStaleFiles(container.getName(), keptFiles, spoolDirectory);
+
+        if (Files.exists(spooledFile)) {
+            // the modification time of staged files is their last use, for the eviction
+            Files.setLastModifiedTime(spooledFile, FileTime.fromMillis(System.currentTimeMillis()));
+            checkIntegrity(container, spooledFile);
+            downloadedBytes.accept(0);
+            return spooledFile;
+        }
+
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<Long>> rangeDownloads = new ArrayList<>();
+        for (int i = 1; i < rangeCount; i++) {
+            Path part = parts.get(i);
+            long[] range = ranges.get(i);
+            rangeDownloads.add(rangeExecutor.submit(() -> {
+                return aborted.get() ? 0L : downloadRange(container.getUrl(), part, range[0], range[1]);
+            }));
+        }
+        long downloaded;
+        try {
+            downloaded = downloadRange(container.getUrl(), parts.get(0), ranges.get(0)[0], ranges.get(0)[1]);
+        } catch (IOException | RuntimeException e) {
+            // the ranges not started yet are skipped, the running ones are awaited so that no download outlives this call
+            aborted.set(true);
             try {
-                String childName = child.getName().getBaseName();
-                String childUrl = child.getURL().toString();
-                childrenUrls.put(childName, childUrl);
-            } catch (FileSystemException e) {
-                LOGGER.warn(e.getMessage());
+                waitRangeDownloads(rangeDownloads);
+            } catch (IOException rangeError) {
+                e.addSuppressed(rangeError);
+            }
+            throw e;
+        }
+        downloaded += waitRangeDownloads(rangeDownloads);
+
+        try (FileChannel out = FileChannel.open(spooledFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < in.size()) {
+                        position += in.transferTo(position, in.size() - position, out);
+                    }
+                }
             }
         }
+        for (Path part : parts) {
+            Files.delete(part);
+        }
 
-        return childrenUrls;
+        checkIntegrity(container, spooledFile);
+        downloadedBytes.accept(downloaded);
+        return spooledFile;
     }
 
-    public TransferableFile getFile(String fileName, String fileUrl) throws IOException {
-        FileObject file = fsManager.resolveFile(fileUrl, fsOptions);
-        return new TransferableFile(fileName, file.getContent().getByteArray());
+    private static void deleteStaleFiles(String containerName, List<Path> keptFiles, Path spoolDirectory) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDirectory, containerName + ".*")) {
+            for (Path file : stream) {
+                if (!keptFiles.contains(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Download the missing end of the partial file of a byte range, and return the number of bytes fetched.
+     */
+    private long downloadRange(String fileUrl, Path part, long start, long end) throws IOException {
+        if (!Files.exists(part)) {
+            Files.createFile(part);
+        }
+        long downloaded = Files.size(part);
+        if (downloaded > end - start) {
+            // not a partial file of this range
+            Files.write(part, new byte[0]);
+            downloaded = 0;
+        }
+        if (downloaded == end - start) {
+            return 0;
+        }
+
+        FileSystemOptions session = checkoutSession();
+        try (FileObject file = fsManager.resolveFile(fileUrl, session);
+             RandomAccessContent content = file.getContent().getRandomAccessContent(RandomAccessMode.READ);
+             OutputStream out = Files.newOutputStream(part, StandardOpenOption.APPEND)) {
+            // SFTP offset read or FTP REST from the end of the partial file
+            content.seek(start + downloaded);
+            InputStream in = content.getInputStream();
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            long remaining = end - start - downloaded;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of file while downloading " + fileUrl);
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            releaseSession(session);
+        }
+        return end - start - downloaded;
+    }
+
+    private static long waitRangeDownloads(List<Future<Long>> rangeDownloads) throws IOException {
+        IOException error = null;
+        long downloaded = 0;
+        for (Future<Long> rangeDownload : rangeDownloads) {
+            try {
+                downloaded += rangeDownload.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while downloading byte ranges");
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return downloaded;
+    }
+
+    private static void checkIntegrity(BoundaryContainerInfo container, Path spooledFile) throws IOException {
+        try {
+            if (Files.size(spooledFile) != container.getSize()) {
+                throw new IOException("Size of downloaded container '" + container.getName() + "' is " + Files.size(spooledFile)
+                    + " instead of " + container.getSize());
+            }
+            // reads the zip central directory
+            new ZipFile(spooledFile.toFile()).close();
+        } catch (IOException e) {
+            Files.deleteIfExists(spooledFile);
+            throw e;
+        }
     }
 
     public void close() {
+        rangeExecutor.shutdownNow();
+        LOGGER.info("Acquisition server sessions: {} checkouts, {} ms waiting for an idle session",
+                    checkoutCount.get(), TimeUnit.NANOSECONDS.toMillis(checkoutWaitNanos.get()));
         fsManager.close();
     }
 }
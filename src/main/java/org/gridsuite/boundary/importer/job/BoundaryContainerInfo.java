@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import org.gridsuite.boundary.importer.job.utils.BoundaryContainerFileName;
+
+/**
+ * Boundary container zip file available on the acquisition server.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryContainerInfo {
+
+    private final BoundaryContainerFileName fileName;
+
+    private final String url;
+
+    private final long size;
+
+    private final long lastModifiedTime;
+
+    public BoundaryContainerInfo(BoundaryContainerFileName fileName, String url, long size, long lastModifiedTime) {
+        this.fileName = fileName;
+        this.url = url;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    public String getName() {
+        return fileName.getName();
+    }
+
+    public BoundaryContainerFileName getFileName() {
+        return fileName;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+
+/**
+ * FullModel ids of the boundary files already parsed, keyed by file name, CRC-32 and size of the zip entry.
+ * The same boundary file is found again in the successive versions of the boundary containers: an entry which
+ * content is known from its zip header is recognised without decompressing nor parsing it.
+ * When a state directory is given, the index is persisted in an append-only file for the next runs.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryContentIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundaryContentIndex.class);
+
+    static final String INDEX_FILE_NAME = "boundary-content-index";
+
+    private static final String SEPARATOR = "\t";
+
+    private final Path indexFile;
+
+    private final Map<String, String> idsByContent = new ConcurrentHashMap<>();
+
+    /**
+     * In memory index, not persisted.
+     */
+    public BoundaryContentIndex() {
+        indexFile = null;
+    }
+
+    private BoundaryContentIndex(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public static BoundaryContentIndex load(Path stateDirectory) throws IOException {
+        Files.createDirectories(stateDirectory);
+        BoundaryContentIndex index = new BoundaryContentIndex(stateDirectory.resolve(INDEX_FILE_NAME));
+        if (Files.exists(index.indexFile)) {
+            List<String> lines = Files.readAllLines(index.indexFile, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                // the id is after the last separator, the content key holds the other separators
+                int separatorIndex = line.lastIndexOf(SEPARATOR);
+                if (separatorIndex > 0) {
+                    index.idsByContent.put(line.substring(0, separatorIndex), line.substring(separatorIndex + 1));
+                } else {
+                    LOGGER.warn("Ignoring invalid boundary content index line '{}'", line);
+                }
+            }
+            if (lines.size() > index.idsByContent.size()) {
+                // only keep the last id of each content
+                index.compact();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Key of the content of a boundary file zip entry, or null when its CRC-32 or size is not known yet: entries
+     * written with a data descriptor only get them once they have been read.
+     */
+    public static String contentKey(String fileName, ZipEntry entry) {
+        if (entry.getCrc() == -1 || entry.getSize() == -1) {
+            return null;
+        }
+        return fileName + SEPARATOR + Long.toHexString(entry.getCrc()) + SEPARATOR + entry.getSize();
+    }
+
+    public String getId(String contentKey) {
+        return contentKey != null ? idsByContent.get(contentKey) : null;
+    }
+
+    /**
+     * Record the id of a parsed boundary file. The index is an optimization: a failure to persist it is only logged.
+     */
+    public synchronized void put(String contentKey, String id) {
+        if (!id.equals(idsByContent.put(contentKey, id)) && indexFile != null) {
+            try {
+                Files.writeString(indexFile, contentKey + SEPARATOR + id + System.lineSeparator(), StandardCharsets.UTF_8,
+                                  StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to persist the boundary content index: {}", e.getMessage());
+            }
+        }
+    }
+
+    public int size() {
+        return idsByContent.size();
+    }
+
+    private void compact() throws IOException {
+        Path tmpFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> content : idsByContent.entrySet()) {
+                writer.write(content.getKey() + SEPARATOR + content.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
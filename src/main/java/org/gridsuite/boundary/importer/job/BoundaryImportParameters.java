@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import com.powsybl.commons.config.PlatformConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Parameters of the boundary import job.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryImportParameters {
+
+    public static final AcquisitionMode DEFAULT_ACQUISITION_MODE = AcquisitionMode.IN_MEMORY;
+    public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 1;
+    public static final long DEFAULT_RANGE_SIZE = 64L * 1024 * 1024;
+    public static final long DEFAULT_SPOOL_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+    public static final Duration DEFAULT_SPOOL_MAX_AGE = Duration.ofDays(7);
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 1;
+    public static final int DEFAULT_MAX_UPLOAD_CONCURRENCY = 8;
+    public static final Duration DEFAULT_UPLOAD_LATENCY_THRESHOLD = Duration.ofSeconds(10);
+    public static final int DEFAULT_UPLOAD_MAX_RETRIES = 3;
+    public static final Duration DEFAULT_UPLOAD_RETRY_BACKOFF = Duration.ofMillis(500);
+    public static final UploadCompression DEFAULT_UPLOAD_COMPRESSION = UploadCompression.NONE;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10;
+    public static final int DEFAULT_PARSE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static final DeduplicationMode DEFAULT_DEDUPLICATION_MODE = DeduplicationMode.ID;
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_MAX_POLL_INTERVAL = Duration.ofMinutes(5);
+
+    private AcquisitionMode acquisitionMode = DEFAULT_ACQUISITION_MODE;
+
+    private int downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
+
+    private boolean incrementalListing = false;
+
+    // same as the download concurrency when not set
+    private Integer sessionPoolSize;
+
+    private Path spoolDirectory;
+
+    private long rangeSize = DEFAULT_RANGE_SIZE;
+
+    private long spoolMaxSize = DEFAULT_SPOOL_MAX_SIZE;
+
+    private Duration spoolMaxAge = DEFAULT_SPOOL_MAX_AGE;
+
+    private int uploadConcurrency = DEFAULT_UPLOAD_CONCURRENCY;
+
+    // at least the upload concurrency and the default maximum when not set
+    private Integer maxUploadConcurrency;
+
+    private Duration uploadLatencyThreshold = DEFAULT_UPLOAD_LATENCY_THRESHOLD;
+
+    private int uploadMaxRetries = DEFAULT_UPLOAD_MAX_RETRIES;
+
+    private Duration uploadRetryBackoff = DEFAULT_UPLOAD_RETRY_BACKOFF;
+
+    private boolean batchUpload = false;
+
+    private UploadCompression uploadCompression = DEFAULT_UPLOAD_COMPRESSION;
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private int parseParallelism = DEFAULT_PARSE_PARALLELISM;
+
+    private DeduplicationMode deduplicationMode = DEFAULT_DEDUPLICATION_MODE;
+
+    private Path stateDirectory;
+
+    private Path runReportFile;
+
+    private boolean daemon = false;
+
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+
+    private Duration maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+
+    public static BoundaryImportParameters load(PlatformConfig platformConfig) {
+        BoundaryImportParameters parameters = new BoundaryImportParameters();
+        platformConfig.getOptionalModuleConfig("acquisition-server").ifPresent(config -> {
+            parameters
+                .setAcquisitionMode(config.getEnumProperty("acquisition-mode", AcquisitionMode.class, DEFAULT_ACQUISITION_MODE))
+                .setDownloadConcurrency(config.getIntProperty("download-concurrency", DEFAULT_DOWNLOAD_CONCURRENCY))
+                .setIncrementalListing(config.getBooleanProperty("incremental-listing", false))
+                .setSpoolDirectory(config.getOptionalPathProperty("spool-directory").orElse(null))
+                .setRangeSize(config.getLongProperty("range-size", DEFAULT_RANGE_SIZE))
+                .setSpoolMaxSize(config.getLongProperty("spool-max-size", DEFAULT_SPOOL_MAX_SIZE))
+                .setSpoolMaxAge(Duration.ofHours(config.getLongProperty("spool-max-age-hours", DEFAULT_SPOOL_MAX_AGE.toHours())));
+            config.getOptionalIntProperty("session-pool-size").ifPresent(parameters::setSessionPoolSize);
+        });
+        platformConfig.getOptionalModuleConfig("cgmes-boundary-server").ifPresent(config -> {
+            parameters
+                .setUploadConcurrency(config.getIntProperty("upload-concurrency", DEFAULT_UPLOAD_CONCURRENCY))
+                .setUploadLatencyThreshold(Duration.ofMillis(config.getLongProperty("upload-latency-threshold-ms", DEFAULT_UPLOAD_LATENCY_THRESHOLD.toMillis())))
+                .setUploadMaxRetries(config.getIntProperty("upload-max-retries", DEFAULT_UPLOAD_MAX_RETRIES))
+                .setUploadRetryBackoff(Duration.ofMillis(config.getLongProperty("upload-retry-backoff-ms", DEFAULT_UPLOAD_RETRY_BACKOFF.toMillis())))
+                .setBatchUpload(config.getBooleanProperty("batch-upload", false))
+                .setUploadCompression(config.getEnumProperty("compression", UploadCompression.class, DEFAULT_UPLOAD_COMPRESSION));
+            config.getOptionalIntProperty("max-upload-concurrency").ifPresent(parameters::setMaxUploadConcurrency);
+        });
+        platformConfig.getOptionalModuleConfig("boundary-import-job").ifPresent(config -> parameters
+            .setQueueCapacity(config.getIntProperty("queue-capacity", DEFAULT_QUEUE_CAPACITY))
+            .setParseParallelism(config.getIntProperty("parse-parallelism", DEFAULT_PARSE_PARALLELISM))
+            .setDeduplicationMode(config.getEnumProperty("deduplication-mode", DeduplicationMode.class, DEFAULT_DEDUPLICATION_MODE))
+            .setStateDirectory(config.getOptionalPathProperty("state-directory").orElse(null))
+            .setRunReportFile(config.getOptionalPathProperty("run-report-file").orElse(null))
+            .setDaemon(config.getBooleanProperty("daemon", false))
+            .setPollInterval(Duration.ofSeconds(config.getLongProperty("poll-interval-seconds", DEFAULT_POLL_INTERVAL.toSeconds())))
+            .setMaxPollInterval(Duration.ofSeconds(config.getLongProperty("max-poll-interval-seconds", DEFAULT_MAX_POLL_INTERVAL.toSeconds()))));
+        // the spool directory eviction must not reach the state files
+        parameters.getStateDirectory().ifPresent(stateDirectory -> {
+            if (stateDirectory.toAbsolutePath().normalize().equals(parameters.getSpoolDirectory().toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Invalid spool-directory " + parameters.getSpoolDirectory() + ", must not be the state-directory");
+            }
+        });
+        return parameters;
+    }
+
+    private static <T extends Number> T checkPositive(String name, T value) {
+        if (value.longValue() <= 0) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value + ", must be strictly positive");
+        }
+        return value;
+    }
+
+    public AcquisitionMode getAcquisitionMode() {
+        return acquisitionMode;
+    }
+
+    public BoundaryImportParameters setAcquisitionMode(AcquisitionMode acquisitionMode) {
+        this.acquisitionMode = acquisitionMode;
+        return this;
+    }
+
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    public BoundaryImportParameters setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = checkPositive("download-concurrency", downloadConcurrency);
+        return this;
+    }
+
+    /**
+     * If true, only the containers newer than the acquisition watermark are listed.
+     */
+    public boolean isIncrementalListing() {
+        return incrementalListing;
+    }
+
+    public BoundaryImportParameters setIncrementalListing(boolean incrementalListing) {
+        this.incrementalListing = incrementalListing;
+        return this;
+    }
+
+    /**
+     * Number of long-lived acquisition server sessions, defaults to the download concurrency.
+     */
+    public int getSessionPoolSize() {
+        return sessionPoolSize != null ? sessionPoolSize : downloadConcurrency;
+    }
+
+    public BoundaryImportParameters setSessionPoolSize(Integer sessionPoolSize) {
+        this.sessionPoolSize = sessionPoolSize != null ? checkPositive("session-pool-size", sessionPoolSize) : null;
+        return this;
+    }
+
+    /**
+     * Directory of the containers downloaded in spooled mode. Defaults to the spool sub directory of the state
+     * directory, or to a directory of the system temporary directory.
+     */
+    public Path getSpoolDirectory() {
+        if (spoolDirectory != null) {
+            return spoolDirectory;
+        }
+        return stateDirectory != null ? stateDirectory.resolve("spool") : Path.of(System.getProperty("java.io.tmpdir"), "boundary-import-spool");
+    }
+
+    public BoundaryImportParameters setSpoolDirectory(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+        return this;
+    }
+
+    /**
+     * Containers larger than the range size are downloaded in parallel byte ranges, in spooled mode.
+     */
+    public long getRangeSize() {
+        return rangeSize;
+    }
+
+    public BoundaryImportParameters setRangeSize(long rangeSize) {
+        this.rangeSize = checkPositive("range-size", rangeSize);
+        return this;
+    }
+
+    /**
+     * Maximum total size of the files staged in the spool directory.
+     */
+    public long getSpoolMaxSize() {
+        return spoolMaxSize;
+    }
+
+    public BoundaryImportParameters setSpoolMaxSize(long spoolMaxSize) {
+        this.spoolMaxSize = spoolMaxSize;
+        return this;
+    }
+
+    /**
+     * Files of the spool directory not used for longer than this are evicted.
+     */
+    public Duration getSpoolMaxAge() {
+        return spoolMaxAge;
+    }
+
+    public BoundaryImportParameters setSpoolMaxAge(Duration spoolMaxAge) {
+        this.spoolMaxAge = spoolMaxAge;
+        return this;
+    }
+
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public BoundaryImportParameters setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = checkPositive("upload-concurrency", uploadConcurrency);
+        return this;
+    }
+
+    /**
+     * The upload concurrency is the initial limit of the uploads in flight, adjusted up to this maximum from the
+     * responses of the cgmes boundary server.
+     */
+    public int getMaxUploadConcurrency() {
+        return maxUploadConcurrency != null ? maxUploadConcurrency : Math.max(uploadConcurrency, DEFAULT_MAX_UPLOAD_CONCURRENCY);
+    }
+
+    public BoundaryImportParameters setMaxUploadConcurrency(Integer maxUploadConcurrency) {
+        this.maxUploadConcurrency = maxUploadConcurrency != null ? checkPositive("max-upload-concurrency", maxUploadConcurrency) : null;
+        return this;
+    }
+
+    /**
+     * Uploads slower than this decrease the limit of the uploads in flight.
+     */
+    public Duration getUploadLatencyThreshold() {
+        return uploadLatencyThreshold;
+    }
+
+    public BoundaryImportParameters setUploadLatencyThreshold(Duration uploadLatencyThreshold) {
+        this.uploadLatencyThreshold = uploadLatencyThreshold;
+        return this;
+    }
+
+    /**
+     * Number of times an upload is retried after a transient failure.
+     */
+    public int getUploadMaxRetries() {
+        return uploadMaxRetries;
+    }
+
+    public BoundaryImportParameters setUploadMaxRetries(int uploadMaxRetries) {
+        this.uploadMaxRetries = uploadMaxRetries;
+        return this;
+    }
+
+    /**
+     * Delay before the first retry of an upload, doubled for each next retry.
+     */
+    public Duration getUploadRetryBackoff() {
+        return uploadRetryBackoff;
+    }
+
+    public BoundaryImportParameters setUploadRetryBackoff(Duration uploadRetryBackoff) {
+        this.uploadRetryBackoff = uploadRetryBackoff;
+        return this;
+    }
+
+    /**
+     * If true, the new boundary files of a container are uploaded in a single request.
+     */
+    public boolean isBatchUpload() {
+        return batchUpload;
+    }
+
+    public BoundaryImportParameters setBatchUpload(boolean batchUpload) {
+        this.batchUpload = batchUpload;
+        return this;
+    }
+
+    public UploadCompression getUploadCompression() {
+        return uploadCompression;
+    }
+
+    public BoundaryImportParameters setUploadCompression(UploadCompression uploadCompression) {
+        this.uploadCompression = uploadCompression;
+        return this;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public BoundaryImportParameters setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = checkPositive("queue-capacity", queueCapacity);
+        return this;
+    }
+
+    /**
+     * Number of boundary files parsed at the same time.
+     */
+    public int getParseParallelism() {
+        return parseParallelism;
+    }
+
+    public BoundaryImportParameters setParseParallelism(int parseParallelism) {
+        this.parseParallelism = checkPositive("parse-parallelism", parseParallelism);
+        return this;
+    }
+
+    public DeduplicationMode getDeduplicationMode() {
+        return deduplicationMode;
+    }
+
+    public BoundaryImportParameters setDeduplicationMode(DeduplicationMode deduplicationMode) {
+        this.deduplicationMode = deduplicationMode;
+        return this;
+    }
+
+    /**
+     * Directory where the acquisition state is persisted between runs, if any.
+     */
+    public Optional<Path> getStateDirectory() {
+        return Optional.ofNullable(stateDirectory);
+    }
+
+    public BoundaryImportParameters setStateDirectory(Path stateDirectory) {
+        this.stateDirectory = stateDirectory;
+        return this;
+    }
+
+    /**
+     * File where the metrics of the job execution are reported, if any. Defaults to a file of the state directory.
+     */
+    public Optional<Path> getRunReportFile() {
+        if (runReportFile != null) {
+            return Optional.of(runReportFile);
+        }
+        return getStateDirectory().map(directory -> directory.resolve("run-report.json"));
+    }
+
+    public BoundaryImportParameters setRunReportFile(Path runReportFile) {
+        this.runReportFile = runReportFile;
+        return this;
+    }
+
+    /**
+     * If true, the job keeps running and polls the acquisition server, instead of acquiring the containers once.
+     */
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public BoundaryImportParameters setDaemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    /**
+     * Interval between two polls in daemon mode, after a poll which found containers to acquire.
+     */
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public BoundaryImportParameters setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * Maximum interval between two polls in daemon mode, reached after successive idle polls.
+     */
+    public Duration getMaxPollInterval() {
+        return maxPollInterval;
+    }
+
+    public BoundaryImportParameters setMaxPollInterval(Duration maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+        return this;
+    }
+}
@@ -0,0 +1,661 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import com.powsybl.ws.commons.SecuredZipInputStream;
+import org.apache.commons.io.FilenameUtils;
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.gridsuite.boundary.importer.job.utils.FullModelIdReader;
+import org.gridsuite.boundary.importer.job.utils.SpoolDirectoryEvictor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Staged import of boundary containers: acquire -> unzip -> parse id and dedup -> upload.
+ * Stages run on their own workers and are connected by bounded queues, so that a slow stage
+ * applies backpressure to the previous one while downloads and uploads keep overlapping.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryImportPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundaryImportPipeline.class);
+
+    private static final int UNZIP_WORKERS = 1;
+
+    // uploads are asynchronous, a single worker dispatches them
+    private static final int UPLOAD_WORKERS = 1;
+
+    // End of stream marker, one is queued for each worker of the consuming stage
+    private static final PipelineItem END_OF_STREAM = new PipelineItem(null, null, null);
+
+    private final BoundaryAcquisitionServer boundaryAcquisitionServer;
+
+    private final CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester;
+
+    private final AcquisitionMode acquisitionMode;
+
+    private final int downloadConcurrency;
+
+    private final DeduplicationMode deduplicationMode;
+
+    private final boolean batchUpload;
+
+    // boundary files are parsed in parallel, on one worker per processor by default
+    private final int identifyWorkers;
+
+    private final Path spoolDirectory;
+
+    private final long rangeSize;
+
+    private final long spoolMaxSize;
+
+    private final Duration spoolMaxAge;
+
+    private final BlockingQueue<PipelineItem> containersQueue;
+
+    private final BlockingQueue<PipelineItem> boundariesQueue;
+
+    private final BlockingQueue<PipelineItem> uploadsQueue;
+
+    // batches the cgmes boundary server did not import as a whole, their files are uploaded one by one by the upload worker
+    private final Queue<List<PipelineItem>> unbatchedUploads = new ConcurrentLinkedQueue<>();
+
+    private final JobMetrics metrics;
+
+    /**
+     * Progress of a boundary container through the pipeline.
+     */
+    private static final class ContainerProgress {
+
+        private final BoundaryContainerInfo container;
+
+        private final long startNanos = System.nanoTime();
+
+        // boundary files of the container still in the pipeline, plus one until the container is fully extracted
+        private final AtomicInteger pendingBoundaries = new AtomicInteger(1);
+
+        // boundary files of the container not identified yet, plus one until the container is fully extracted
+        private final AtomicInteger unidentifiedBoundaries = new AtomicInteger(1);
+
+        private volatile boolean failed;
+
+        // staged container from which the boundary files are read, closed once they are all handled
+        private volatile ZipFile zipFile;
+
+        // bytes actually inflated from the entries of the staged container, each entry counted once
+        private final AtomicLong inflatedBytes = new AtomicLong();
+
+        private ContainerProgress(BoundaryContainerInfo container) {
+            this.container = container;
+        }
+    }
+
+    /**
+     * A boundary container or boundary file going through the pipeline.
+     * In batch upload mode, an item without file marks the end of the identified boundary files of a container.
+     */
+    private static final class PipelineItem {
+
+        private final ContainerProgress progress;
+
+        private final TransferableFile file;
+
+        // FullModel id, once the boundary file has been identified
+        private final String id;
+
+        // key of the zip entry of the boundary file in the content index, if known
+        private final String contentKey;
+
+        private PipelineItem(ContainerProgress progress, TransferableFile file, String id) {
+            this(progress, file, id, null);
+        }
+
+        private PipelineItem(ContainerProgress progress, TransferableFile file, String id, String contentKey) {
+            this.progress = progress;
+            this.file = file;
+            this.id = id;
+            this.contentKey = contentKey;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageWorker {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Stream of a staged container entry, which fails once the bytes inflated from the container exceed the max zip
+     * size: the sizes declared in the central directory may not match the compressed data. An entry may be read
+     * several times (identification, upload, retries), only the bytes read past the furthest previous read are counted.
+     */
+    private static final class InflatedSizeCheckInputStream extends FilterInputStream {
+
+        private final AtomicLong containerInflatedBytes;
+
+        private final AtomicLong entryInflatedBytes;
+
+        private long position;
+
+        private InflatedSizeCheckInputStream(InputStream in, AtomicLong containerInflatedBytes, AtomicLong entryInflatedBytes) {
+            super(in);
+            this.containerInflatedBytes = containerInflatedBytes;
+            this.entryInflatedBytes = entryInflatedBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are inflated too
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws IOException {
+            position += n;
+            long previous = entryInflatedBytes.getAndAccumulate(position, Math::max);
+            if (position > previous
+                && containerInflatedBytes.addAndGet(position - previous) > CgmesBoundaryUtils.MAX_ZIP_SIZE) {
+                throw new IOException("Zip size is too big.");
+            }
+        }
+    }
+
+    public BoundaryImportPipeline(BoundaryAcquisitionServer boundaryAcquisitionServer,
+                                  CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
+                                  BoundaryImportParameters parameters) {
+        this(boundaryAcquisitionServer, cgmesBoundaryServiceRequester, parameters, new JobMetrics());
+    }
+
+    public BoundaryImportPipeline(BoundaryAcquisitionServer boundaryAcquisitionServer,
+                                  CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester,
+                                  BoundaryImportParameters parameters,
+                                  JobMetrics metrics) {
+        this.boundaryAcquisitionServer = boundaryAcquisitionServer;
+        this.cgmesBoundaryServiceRequester = cgmesBoundaryServiceRequester;
+        acquisitionMode = parameters.getAcquisitionMode();
+        downloadConcurrency = parameters.getDownloadConcurrency();
+        deduplicationMode = parameters.getDeduplicationMode();
+        batchUpload = parameters.isBatchUpload();
+        identifyWorkers = parameters.getParseParallelism();
+        spoolDirectory = parameters.getSpoolDirectory();
+        rangeSize = parameters.getRangeSize();
+        spoolMaxSize = parameters.getSpoolMaxSize();
+        spoolMaxAge = parameters.getSpoolMaxAge();
+        containersQueue = new ArrayBlockingQueue<>(parameters.getQueueCapacity());
+        boundariesQueue = new ArrayBlockingQueue<>(parameters.getQueueCapacity());
+        uploadsQueue = new ArrayBlockingQueue<>(parameters.getQueueCapacity());
+        this.metrics = metrics;
+    }
+
+    public void run(List<BoundaryContainerInfo> containersToAcquire,
+                    BoundaryIndex boundaryIndex,
+                    BoundaryImportReport report) throws InterruptedException {
+        run(containersToAcquire, boundaryIndex, new BoundaryContentIndex(), report);
+    }
+
+    public void run(List<BoundaryContainerInfo> containersToAcquire,
+                    BoundaryIndex boundaryIndex,
+                    BoundaryContentIndex contentIndex,
+                    BoundaryImportReport report) throws InterruptedException {
+        Queue<BoundaryContainerInfo> pendingContainers = new ConcurrentLinkedQueue<>(containersToAcquire);
+        if (acquisitionMode == AcquisitionMode.SPOOLED) {
+            try {
+                Files.createDirectories(spoolDirectory);
+                SpoolDirectoryEvictor.evict(spoolDirectory, spoolMaxSize, spoolMaxAge);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(downloadConcurrency + UNZIP_WORKERS + identifyWorkers + UPLOAD_WORKERS);
+        try {
+            CompletionService<Void> workers = new ExecutorCompletionService<>(executor);
+            startStage(workers, downloadConcurrency, () -> acquireContainers(pendingContainers, boundaryIndex, contentIndex, report), containersQueue, UNZIP_WORKERS);
+            startStage(workers, UNZIP_WORKERS, () -> unzipContainers(boundaryIndex, contentIndex, report), boundariesQueue, identifyWorkers);
+            startStage(workers, identifyWorkers, () -> identifyBoundaries(boundaryIndex, contentIndex, report), uploadsQueue, UPLOAD_WORKERS);
+            startStage(workers, UPLOAD_WORKERS, () -> uploadBoundaries(boundaryIndex, report), null, 0);
+
+            int workerCount = downloadConcurrency + UNZIP_WORKERS + identifyWorkers + UPLOAD_WORKERS;
+            for (int i = 0; i < workerCount; i++) {
+                try {
+                    workers.take().get();
+                } catch (ExecutionException e) {
+                    // the other stages may be blocked on the queues of the dead worker, stop them
+                    executor.shutdownNow();
+                    throw new IllegalStateException("Boundary import pipeline error: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void startStage(CompletionService<Void> workers, int workerCount, StageWorker stageWorker,
+                            BlockingQueue<PipelineItem> nextQueue, int nextWorkerCount) {
+        AtomicInteger runningWorkers = new AtomicInteger(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(() -> {
+                try {
+                    stageWorker.run();
+                } finally {
+                    // the last worker of the stage notifies each worker of the next stage
+                    if (runningWorkers.decrementAndGet() == 0 && nextQueue != null) {
+                        for (int j = 0; j < nextWorkerCount; j++) {
+                            nextQueue.put(END_OF_STREAM);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Called once a boundary file of the container has been handled.
+     */
+    private void boundaryDone(ContainerProgress progress, boolean success, BoundaryImportReport report) {
+        if (!success) {
+            progress.failed = true;
+        }
+        if (progress.pendingBoundaries.decrementAndGet() == 0) {
+            if (!progress.failed) {
+                report.addContainerImported(progress.container);
+            }
+            metrics.containerDone(progress.container, progress.startNanos, !progress.failed);
+            if (progress.zipFile != null) {
+                try {
+                    progress.zipFile.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Error while closing boundary container '{}': {}", progress.container.getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once a boundary file of the container has been identified, and once the container is fully extracted.
+     * In batch upload mode, the last call marks the end of the boundary files of the container for the upload stage.
+     * The boundary files forwarded to the upload stage are queued before this call, hence before the end marker.
+     */
+    private void boundaryIdentified(ContainerProgress progress) throws InterruptedException {
+        if (progress.unidentifiedBoundaries.decrementAndGet() == 0 && batchUpload) {
+            uploadsQueue.put(new PipelineItem(progress, null, null));
+        }
+    }
+
+    private void acquireContainers(Queue<BoundaryContainerInfo> pendingContainers, BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex,
+                                   BoundaryImportReport report) throws InterruptedException {
+        BoundaryContainerInfo container = pendingContainers.poll();
+        while (container != null) {
+            ContainerProgress progress = new ContainerProgress(container);
+            try {
+                if (acquisitionMode == AcquisitionMode.STREAMING) {
+                    // unzip boundary container zip file while downloading it
+                    try (InputStream containerStream = boundaryAcquisitionServer.openFile(container.getUrl())) {
+                        extractBoundaries(containerStream, progress, boundaryIndex, contentIndex, report);
+                    }
+                    metrics.addBytesDownloaded(container.getSize());
+                } else if (acquisitionMode == AcquisitionMode.SPOOLED) {
+                    // download boundary container zip file to the spool directory, boundary files are read from the staged file
+                    long downloadStart = System.nanoTime();
+                    Path spooledFile = boundaryAcquisitionServer.spoolFile(container, spoolDirectory, rangeSize, metrics::addBytesDownloaded);
+                    metrics.record(JobMetrics.Stage.DOWNLOAD, downloadStart);
+                    extractStagedBoundaries(spooledFile, progress, boundaryIndex, contentIndex, report);
+                } else {
+                    // get boundary container zip file
+                    long downloadStart = System.nanoTime();
+                    TransferableFile containerFile = boundaryAcquisitionServer.getFile(container.getName(), container.getUrl());
+                    metrics.record(JobMetrics.Stage.DOWNLOAD, downloadStart);
+                    metrics.addBytesDownloaded(containerFile.getSize());
+                    containersQueue.put(new PipelineItem(progress, containerFile, null));
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Error while acquiring boundary container '{}': {}", container.getName(), e.getMessage());
+                boundaryDone(progress, false, report);
+            }
+            container = pendingContainers.poll();
+        }
+    }
+
+    private void unzipContainers(BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex, BoundaryImportReport report) throws InterruptedException {
+        PipelineItem container = containersQueue.take();
+        while (container != END_OF_STREAM) {
+            try (InputStream containerStream = new BufferedInputStream(container.file.openStream())) {
+                extractBoundaries(containerStream, container.progress, boundaryIndex, contentIndex, report);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Error while unzipping boundary container '{}': {}", container.file.getName(), e.getMessage());
+                boundaryDone(container.progress, false, report);
+            }
+            container = containersQueue.take();
+        }
+    }
+
+    private void extractBoundaries(InputStream containerStream, ContainerProgress progress, BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex,
+                                   BoundaryImportReport report) throws IOException, InterruptedException {
+        try {
+            extractBoundaryFiles(containerStream, progress, boundaryIndex, contentIndex, report);
+        } finally {
+            boundaryIdentified(progress);
+        }
+        boundaryDone(progress, true, report);
+    }
+
+    private void extractBoundaryFiles(InputStream containerStream, ContainerProgress progress, BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex,
+                                      BoundaryImportReport report) throws IOException, InterruptedException {
+        String fileName;
+        try (SecuredZipInputStream zis = new SecuredZipInputStream(containerStream, CgmesBoundaryUtils.MAX_ZIP_ENTRIES_COUNT, CgmesBoundaryUtils.MAX_ZIP_SIZE)) {
+            ZipEntry entry = zis.getNextEntry();
+            while (entry != null) {
+                if (new File(entry.getName()).getCanonicalPath().startsWith("..")) {
+                    throw new IllegalStateException("Entry is trying to leave the target dir: " + entry.getName());
+                }
+
+                // Remove repertory name before file name
+                fileName = FilenameUtils.getName(entry.getName());
+
+                // Check if it is a boundary file
+                if (CgmesBoundaryUtils.isBoundaryFileName(fileName)) {
+
+                    String contentKey = BoundaryContentIndex.contentKey(fileName, entry);
+                    if (deduplicationMode == DeduplicationMode.FILENAME && boundaryIndex.getIdByFilename(fileName) != null
+                        || isKnownContent(contentKey, boundaryIndex, contentIndex)) {
+                        // fast path: the boundary server already has this file, skip reading and parsing it
+                        report.addAlreadyImported(fileName);
+                    } else {
+                        long unzipStart = System.nanoTime();
+                        TransferableFile boundaryFile = new TransferableFile(fileName, zis.readAllBytes());
+                        metrics.record(JobMetrics.Stage.UNZIP, unzipStart);
+                        progress.pendingBoundaries.incrementAndGet();
+                        progress.unidentifiedBoundaries.incrementAndGet();
+                        // entries written with a data descriptor get their CRC-32 and size once read
+                        boundariesQueue.put(new PipelineItem(progress, boundaryFile, null, BoundaryContentIndex.contentKey(fileName, entry)));
+                    }
+                }
+
+                entry = zis.getNextEntry();
+            }
+        }
+    }
+
+    /**
+     * Read the boundary files from the central directory of the staged container: only the boundary entries are
+     * inflated, when they are read by the next stages.
+     */
+    private void extractStagedBoundaries(Path stagedFile, ContainerProgress progress, BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex,
+                                         BoundaryImportReport report) throws IOException, InterruptedException {
+        try {
+            long unzipStart = System.nanoTime();
+            ZipFile zipFile = new ZipFile(stagedFile.toFile());
+            progress.zipFile = zipFile;
+            checkZipLimits(zipFile);
+            metrics.record(JobMetrics.Stage.UNZIP, unzipStart);
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (new File(entry.getName()).getCanonicalPath().startsWith("..")) {
+                    throw new IllegalStateException("Entry is trying to leave the target dir: " + entry.getName());
+                }
+
+                // Remove repertory name before file name
+                String fileName = FilenameUtils.getName(entry.getName());
+
+                // Check if it is a boundary file
+                if (!entry.isDirectory() && CgmesBoundaryUtils.isBoundaryFileName(fileName)) {
+                    String contentKey = BoundaryContentIndex.contentKey(fileName, entry);
+                    if (deduplicationMode == DeduplicationMode.FILENAME && boundaryIndex.getIdByFilename(fileName) != null
+                        || isKnownContent(contentKey, boundaryIndex, contentIndex)) {
+                        // fast path: the boundary server already has this file, skip reading and parsing it
+                        report.addAlreadyImported(fileName);
+                    } else {
+                        AtomicLong entryInflatedBytes = new AtomicLong();
+                        TransferableFile boundaryFile = new TransferableFile(fileName, entry.getSize(),
+                            () -> new InflatedSizeCheckInputStream(zipFile.getInputStream(entry), progress.inflatedBytes, entryInflatedBytes));
+                        progress.pendingBoundaries.incrementAndGet();
+                        progress.unidentifiedBoundaries.incrementAndGet();
+                        boundariesQueue.put(new PipelineItem(progress, boundaryFile, null, contentKey));
+                    }
+                }
+            }
+        } finally {
+            boundaryIdentified(progress);
+        }
+        boundaryDone(progress, true, report);
+    }
+
+    /**
+     * True if the content of the zip entry has already been parsed, and its id is imported or being imported.
+     */
+    private static boolean isKnownContent(String contentKey, BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex) {
+        String id = contentIndex.getId(contentKey);
+        return id != null && boundaryIndex.containsId(id);
+    }
+
+    /**
+     * Same limits as the ones enforced by SecuredZipInputStream, checked on the central directory to reject the
+     * container early. The size is checked again on the bytes actually inflated, see {@link InflatedSizeCheckInputStream}.
+     */
+    private static void checkZipLimits(ZipFile zipFile) {
+        if (zipFile.size() > CgmesBoundaryUtils.MAX_ZIP_ENTRIES_COUNT) {
+            throw new IllegalStateException("Zip has too many entries.");
+        }
+        long totalSize = 0;
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            long entrySize = entries.nextElement().getSize();
+            if (entrySize < 0) {
+                throw new IllegalStateException("Zip entry size is unknown.");
+            }
+            totalSize += entrySize;
+            if (totalSize > CgmesBoundaryUtils.MAX_ZIP_SIZE) {
+                throw new IllegalStateException("Zip size is too big.");
+            }
+        }
+    }
+
+    private void identifyBoundaries(BoundaryIndex boundaryIndex, BoundaryContentIndex contentIndex, BoundaryImportReport report) throws InterruptedException {
+        PipelineItem boundary = boundariesQueue.take();
+        while (boundary != END_OF_STREAM) {
+            String fileName = boundary.file.getName();
+            try {
+                // read the full model header to get the id
+                long parseStart = System.nanoTime();
+                String id;
+                try (InputStream is = boundary.file.openStream()) {
+                    id = FullModelIdReader.readId(is);
+                }
+                metrics.record(JobMetrics.Stage.PARSE_ID, parseStart);
+                if (boundary.contentKey != null) {
+                    contentIndex.put(boundary.contentKey, id);
+                }
+
+                // also skips boundaries already found in a previous container of this run
+                long deduplicationStart = System.nanoTime();
+                boolean reserved = boundaryIndex.reserve(id);
+                metrics.record(JobMetrics.Stage.DEDUPLICATION, deduplicationStart);
+                if (reserved) {
+                    uploadsQueue.put(new PipelineItem(boundary.progress, boundary.file, id));
+                } else {
+                    report.addAlreadyImported(fileName);
+                    boundaryDone(boundary.progress, true, report);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Error while parsing boundary file '{}': {}", fileName, e.getMessage());
+                report.addImportFailed(fileName);
+                boundaryDone(boundary.progress, false, report);
+            }
+            boundaryIdentified(boundary.progress);
+            boundary = boundariesQueue.take();
+        }
+    }
+
+    private void uploadBoundaries(BoundaryIndex boundaryIndex, BoundaryImportReport report) throws InterruptedException {
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        // boundary files waiting for the end of their container, in batch upload mode
+        Map<ContainerProgress, List<PipelineItem>> batches = new LinkedHashMap<>();
+        PipelineItem boundary = uploadsQueue.take();
+        while (boundary != END_OF_STREAM) {
+            if (!batchUpload) {
+                uploadItems(List.of(boundary), false, uploads, boundaryIndex, report);
+            } else if (boundary.file != null) {
+                batches.computeIfAbsent(boundary.progress, progress -> new ArrayList<>()).add(boundary);
+            } else {
+                List<PipelineItem> batch = batches.remove(boundary.progress);
+                if (batch != null) {
+                    uploadItems(batch, true, uploads, boundaryIndex, report);
+                }
+            }
+            uploadUnbatched(uploads, boundaryIndex, report);
+            boundary = uploadsQueue.take();
+        }
+        for (List<PipelineItem> batch : batches.values()) {
+            uploadItems(batch, true, uploads, boundaryIndex, report);
+        }
+        // batch uploads complete without waiting for the files they hand back to be uploaded one by one
+        CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0])).join();
+        uploadUnbatched(uploads, boundaryIndex, report);
+        CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void uploadUnbatched(List<CompletableFuture<Void>> uploads, BoundaryIndex boundaryIndex, BoundaryImportReport report) throws InterruptedException {
+        List<PipelineItem> batch = unbatchedUploads.poll();
+        while (batch != null) {
+            for (PipelineItem item : batch) {
+                uploadItems(List.of(item), false, uploads, boundaryIndex, report);
+            }
+            batch = unbatchedUploads.poll();
+        }
+    }
+
+    /**
+     * Start the upload of a boundary file, or of the batch of boundary files of a container.
+     */
+    private void uploadItems(List<PipelineItem> items, boolean batch, List<CompletableFuture<Void>> uploads, BoundaryIndex boundaryIndex,
+                             BoundaryImportReport report) throws InterruptedException {
+        try {
+            uploads.add(batch ? uploadBatch(items, boundaryIndex, report) : uploadBoundary(items.get(0), boundaryIndex, report));
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while importing boundary files of container '{}': {}", items.get(0).progress.container.getName(), e.getMessage());
+            items.forEach(item -> boundaryUploaded(item, false, boundaryIndex, report));
+        }
+    }
+
+    private CompletableFuture<Void> uploadBoundary(PipelineItem boundary, BoundaryIndex boundaryIndex, BoundaryImportReport report) throws InterruptedException {
+        String fileName = boundary.file.getName();
+
+        // import the boundary to the cgmes boundary server, the number of uploads in flight is limited by the requester
+        LOGGER.info("Importing boundary file '{}'...", fileName);
+        long uploadStart = System.nanoTime();
+        return cgmesBoundaryServiceRequester.importBoundaryAsync(boundary.file)
+            .handle((result, error) -> {
+                metrics.record(JobMetrics.Stage.UPLOAD, uploadStart);
+                if (error != null) {
+                    LOGGER.error("Error while importing boundary file '{}': {}", fileName, getCause(error).getMessage());
+                }
+                boundaryUploaded(boundary, error == null && result.isImported(), boundaryIndex, report);
+                return null;
+            });
+    }
+
+    private CompletableFuture<Void> uploadBatch(List<PipelineItem> batch, BoundaryIndex boundaryIndex, BoundaryImportReport report) throws InterruptedException {
+        String containerName = batch.get(0).progress.container.getName();
+        List<TransferableFile> files = batch.stream().map(item -> item.file).collect(Collectors.toList());
+
+        LOGGER.info("Importing {} boundary files of container '{}'...", files.size(), containerName);
+        long uploadStart = System.nanoTime();
+        return cgmesBoundaryServiceRequester.importBoundariesAsync(files)
+            .handle((results, error) -> {
+                if (error == null && results.isEmpty()) {
+                    // uploaded one by one by the upload worker, not on the thread completing the batch request
+                    unbatchedUploads.add(batch);
+                    return null;
+                }
+                metrics.record(JobMetrics.Stage.UPLOAD, uploadStart);
+                if (error != null) {
+                    LOGGER.error("Error while importing boundary files of container '{}': {}", containerName, getCause(error).getMessage());
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    boundaryUploaded(batch.get(i), error == null && results.get().get(i).isImported(), boundaryIndex, report);
+                }
+                return null;
+            });
+    }
+
+    private static Throwable getCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void boundaryUploaded(PipelineItem boundary, boolean importOk, BoundaryIndex boundaryIndex, BoundaryImportReport report) {
+        String fileName = boundary.file.getName();
+        if (importOk) {
+            boundaryIndex.confirm(boundary.id, fileName);
+            report.addImported(fileName);
+            metrics.addBytesUploaded(boundary.file.getSize());
+        } else {
+            boundaryIndex.release(boundary.id);
+            report.addImportFailed(fileName);
+        }
+        boundaryDone(boundary.progress, importOk, report);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Outcome of the boundary files handled during a job execution.
+ * Boundary files may be reported concurrently by several workers.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryImportReport {
+
+    private final Queue<String> filesImported = new ConcurrentLinkedQueue<>();
+
+    private final Queue<String> filesAlreadyImported = new ConcurrentLinkedQueue<>();
+
+    private final Queue<String> filesImportFailed = new ConcurrentLinkedQueue<>();
+
+    private final Queue<BoundaryContainerInfo> containersImported = new ConcurrentLinkedQueue<>();
+
+    public void addImported(String fileName) {
+        filesImported.add(fileName);
+    }
+
+    public void addAlreadyImported(String fileName) {
+        filesAlreadyImported.add(fileName);
+    }
+
+    public void addImportFailed(String fileName) {
+        filesImportFailed.add(fileName);
+    }
+
+    /**
+     * Record a boundary container which boundary files have all been imported or were already imported.
+     */
+    public void addContainerImported(BoundaryContainerInfo container) {
+        containersImported.add(container);
+    }
+
+    public List<String> getFilesImported() {
+        return new ArrayList<>(filesImported);
+    }
+
+    public List<String> getFilesAlreadyImported() {
+        return new ArrayList<>(filesAlreadyImported);
+    }
+
+    public List<String> getFilesImportFailed() {
+        return new ArrayList<>(filesImportFailed);
+    }
+
+    public List<BoundaryContainerInfo> getContainersImported() {
+        return new ArrayList<>(containersImported);
+    }
+}
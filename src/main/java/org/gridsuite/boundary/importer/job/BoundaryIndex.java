@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash index of the boundaries known by the cgmes boundary server, by id and by file name.
+ * It is built once per run from the boundary infos and then updated as boundaries are imported,
+ * so that a boundary found in several containers of the same run is only imported once.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryIndex {
+
+    // ids of the boundaries already imported or being imported
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> idsByFilename = new ConcurrentHashMap<>();
+
+    /**
+     * @param boundaryInfos boundary infos without id are ignored
+     */
+    public BoundaryIndex(Collection<BoundaryInfo> boundaryInfos) {
+        boundaryInfos.forEach(info -> {
+            if (info.getId() != null) {
+                ids.add(info.getId());
+                if (info.getFilename() != null) {
+                    idsByFilename.put(info.getFilename(), info.getId());
+                }
+            }
+        });
+    }
+
+    public boolean containsId(String id) {
+        return ids.contains(id);
+    }
+
+    public String getIdByFilename(String filename) {
+        return idsByFilename.get(filename);
+    }
+
+    /**
+     * Reserve a boundary id before importing it.
+     *
+     * @return false if the boundary is already imported or being imported
+     */
+    public boolean reserve(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Boundary id is missing");
+        }
+        return ids.add(id);
+    }
+
+    /**
+     * Record a successfully imported boundary.
+     */
+    public void confirm(String id, String filename) {
+        ids.add(id);
+        idsByFilename.put(filename, id);
+    }
+
+    /**
+     * Cancel the reservation of a boundary which import failed.
+     */
+    public void release(String id) {
+        ids.remove(id);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
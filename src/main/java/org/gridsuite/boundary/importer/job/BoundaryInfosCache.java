@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Last boundary infos fetched from the cgmes boundary server, with the ETag of the response.
+ * The ETag is used to revalidate the boundary infos, so that they are only fetched again when they changed
+ * on the server. When a state directory is given, the cache is persisted for the next runs.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class BoundaryInfosCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundaryInfosCache.class);
+
+    static final String CACHE_FILE_NAME = "boundary-infos-cache";
+
+    private static final String SEPARATOR = "\t";
+
+    private final Path cacheFile;
+
+    private String eTag;
+
+    private List<BoundaryInfo> boundariesInfos = Collections.emptyList();
+
+    /**
+     * In memory cache, not persisted.
+     */
+    public BoundaryInfosCache() {
+        cacheFile = null;
+    }
+
+    private BoundaryInfosCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    public static BoundaryInfosCache load(Path stateDirectory) throws IOException {
+        Files.createDirectories(stateDirectory);
+        BoundaryInfosCache cache = new BoundaryInfosCache(stateDirectory.resolve(CACHE_FILE_NAME));
+        if (Files.exists(cache.cacheFile)) {
+            // first line is the ETag, then one line per boundary
+            try (BufferedReader reader = Files.newBufferedReader(cache.cacheFile, StandardCharsets.UTF_8)) {
+                String eTag = reader.readLine();
+                List<BoundaryInfo> boundariesInfos = new ArrayList<>();
+                String line = reader.readLine();
+                while (line != null) {
+                    int index = line.indexOf(SEPARATOR);
+                    if (index <= 0) {
+                        LOGGER.warn("Ignoring invalid boundary infos cache file '{}'", cache.cacheFile);
+                        return cache;
+                    }
+                    // an empty file name is a boundary info without file name
+                    String filename = line.substring(index + 1);
+                    boundariesInfos.add(new BoundaryInfo(line.substring(0, index), filename.isEmpty() ? null : filename, null));
+                    line = reader.readLine();
+                }
+                cache.eTag = eTag;
+                cache.boundariesInfos = boundariesInfos;
+            }
+        }
+        return cache;
+    }
+
+    public synchronized Optional<String> getETag() {
+        return Optional.ofNullable(eTag);
+    }
+
+    public synchronized List<BoundaryInfo> getBoundariesInfos() {
+        return boundariesInfos;
+    }
+
+    /**
+     * Replace the cached boundary infos. The cache is an optimization: a failure to persist it is only logged.
+     *
+     * @param eTag ETag of the boundary infos, null if the server did not send one: the boundary infos are then
+     *             kept in memory but not persisted, as they cannot be revalidated
+     */
+    public synchronized void update(String eTag, List<BoundaryInfo> boundariesInfos) {
+        this.eTag = eTag;
+        this.boundariesInfos = Collections.unmodifiableList(new ArrayList<>(boundariesInfos));
+        if (cacheFile != null) {
+            Path tmpFile = cacheFile.resolveSibling(CACHE_FILE_NAME + ".tmp");
+            try {
+                if (eTag == null) {
+                    Files.deleteIfExists(cacheFile);
+                    return;
+                }
+                try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                    writer.write(eTag);
+                    writer.newLine();
+                    for (BoundaryInfo boundaryInfo : boundariesInfos) {
+                        // boundary infos without id are of no use to the boundary index
+                        if (boundaryInfo.getId() != null) {
+                            writer.write(boundaryInfo.getId() + SEPARATOR + Objects.toString(boundaryInfo.getFilename(), ""));
+                            writer.newLine();
+                        }
+                    }
+                }
+                Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to persist the boundary infos cache: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -6,7 +6,10 @@
  */
 package org.gridsuite.boundary.importer.job;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -14,15 +17,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigInteger;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
@@ -33,83 +44,291 @@ public class CgmesBoundaryServiceRequester {
 
     private static final String API_VERSION = "v1";
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    // Status codes meaning that the server has no batch import endpoint
+    private static final Set<Integer> BATCH_UNSUPPORTED_STATUS_CODES = Set.of(404, 405, 415, 501);
+
+    // Status codes meaning that the server is overloaded, the upload concurrency is decreased
+    private static final Set<Integer> OVERLOAD_STATUS_CODES = Set.of(429, 502, 503, 504);
+
+    // Status codes meaning that the upload was not processed, it is retried. A gateway answering 502 or 504 may have
+    // forwarded the upload to the server, which is not idempotent: these are not retried
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(429, 503);
+
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(30);
+
     private final String serviceUrl;
 
     private final HttpClient httpClient;
 
+    // Limits the number of boundary uploads running at the same time, from the observed responses
+    private final AdaptiveConcurrencyLimiter uploadLimiter;
+
+    private final int uploadMaxRetries;
+
+    private final Duration uploadRetryBackoff;
+
+    private final UploadCompression compression;
+
+    // Set once the server has answered that it does not support batch imports
+    private volatile boolean batchUnsupported;
+
     public CgmesBoundaryServiceRequester(String serviceUrl) {
+        this(serviceUrl, 1);
+    }
+
+    /**
+     * @param uploadConcurrency maximum number of boundary uploads in flight
+     */
+    public CgmesBoundaryServiceRequester(String serviceUrl, int uploadConcurrency) {
+        this(serviceUrl, uploadConcurrency, UploadCompression.NONE);
+    }
+
+    /**
+     * @param uploadConcurrency maximum number of boundary uploads in flight
+     * @param compression encoding of the uploaded boundary files
+     */
+    public CgmesBoundaryServiceRequester(String serviceUrl, int uploadConcurrency, UploadCompression compression) {
+        this(serviceUrl, new BoundaryImportParameters().setUploadConcurrency(uploadConcurrency).setMaxUploadConcurrency(uploadConcurrency)
+            .setUploadCompression(compression));
+    }
+
+    /**
+     * Uploads use the upload concurrency, retry and compression parameters.
+     */
+    public CgmesBoundaryServiceRequester(String serviceUrl, BoundaryImportParameters parameters) {
         this.serviceUrl = serviceUrl;
         httpClient = HttpClient.newHttpClient();
+        uploadLimiter = new AdaptiveConcurrencyLimiter(parameters.getUploadConcurrency(), parameters.getMaxUploadConcurrency(), parameters.getUploadLatencyThreshold());
+        uploadMaxRetries = parameters.getUploadMaxRetries();
+        uploadRetryBackoff = parameters.getUploadRetryBackoff();
+        compression = parameters.getUploadCompression();
+    }
+
+    public AdaptiveConcurrencyLimiter getUploadLimiter() {
+        return uploadLimiter;
     }
 
     public boolean importBoundary(TransferableFile boundaryFile) throws IOException, InterruptedException {
-        Map<Object, Object> data = new LinkedHashMap<>();
-        data.put("file", boundaryFile);
+        try {
+            return importBoundaryAsync(boundaryFile).get().isImported();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
 
-        // Random 256 length string is used as multipart boundary
-        String boundary = new BigInteger(256, new SecureRandom()).toString();
+    /**
+     * Send the boundary file to the cgmes boundary server without waiting for the response.
+     * Blocks while the limit of the uploads in flight is reached. Transient failures are retried.
+     */
+    public CompletableFuture<ImportResult> importBoundaryAsync(TransferableFile boundaryFile) throws InterruptedException {
+        MultipartBodyPublisher multipartBody = new MultipartBodyPublisher(compression).addFilePart("file", boundaryFile);
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(serviceUrl + API_VERSION + "/boundaries"))
                 .timeout(Duration.ofMinutes(2))
-                .header("Content-Type", "multipart/form-data;boundary=" + boundary)
-                .POST(ofMimeMultipartData(data, boundary))
+                .header("Content-Type", multipartBody.getContentType())
+                .POST(multipartBody.build())
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        return response.statusCode() == 200;
+        return sendUpload(request, HttpResponse.BodyHandlers.discarding())
+            .thenApply(response -> new ImportResult(boundaryFile.getName(), response.statusCode()));
     }
 
-    private HttpRequest.BodyPublisher ofMimeMultipartData(Map<Object, Object> data,
-                                                         String boundary) {
-        // Result request body
-        List<byte[]> byteArrays = new ArrayList<>();
+    /**
+     * Send an upload request once the upload limiter allows it. The permit is kept while the request is retried,
+     * so that retries do not add load to an overloaded server.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendUpload(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws InterruptedException {
+        uploadLimiter.acquire();
+        try {
+            return sendWithRetries(request, bodyHandler, 0)
+                .whenComplete((response, error) -> uploadLimiter.release());
+        } catch (RuntimeException e) {
+            uploadLimiter.release();
+            throw e;
+        }
+    }
 
-        // Separator with boundary
-        byte[] separator = ("--" + boundary + "\r\nContent-Disposition: form-data; name=").getBytes(StandardCharsets.UTF_8);
+    private <T> CompletableFuture<HttpResponse<T>> sendWithRetries(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int attempt) {
+        long requestStart = System.nanoTime();
+        return httpClient.sendAsync(request, bodyHandler)
+            .handle((response, error) -> {
+                int statusCode = error == null ? response.statusCode() : 0;
+                boolean connectionFailure = error != null && isConnectionFailure(error);
+                uploadLimiter.onResponse(requestStart, connectionFailure || OVERLOAD_STATUS_CODES.contains(statusCode));
 
-        // Iterating over data parts
-        for (Map.Entry<Object, Object> entry : data.entrySet()) {
+                boolean retryable = connectionFailure || RETRYABLE_STATUS_CODES.contains(statusCode);
+                if (retryable && attempt < uploadMaxRetries) {
+                    long delay = Math.max(getRetryDelay(attempt), error == null ? getRetryAfter(response) : 0);
+                    LOGGER.warn("Transient failure of request '{}' ({}), retry in {} ms", request.uri(),
+                                error != null ? getCause(error).getMessage() : "status " + statusCode, delay);
+                    return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                        .thenCompose(ignored -> sendWithRetries(request, bodyHandler, attempt + 1));
+                }
+                return error != null ? CompletableFuture.<HttpResponse<T>>failedFuture(getCause(error)) : CompletableFuture.completedFuture(response);
+            })
+            .thenCompose(Function.identity());
+    }
 
-            // Opening boundary
-            byteArrays.add(separator);
+    private static Throwable getCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
-            // If value is type of Path (file) append content type with file name and file binaries, otherwise simply append key=value
-            if (entry.getValue() instanceof TransferableFile) {
-                var file = (TransferableFile) entry.getValue();
-                String mimeType = "application/octet-stream";
-                byteArrays.add(("\"" + entry.getKey() + "\"; filename=\"" + file.getName()
-                        + "\"\r\nContent-Type: " + mimeType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
-                byteArrays.add(file.getData());
-                byteArrays.add("\r\n".getBytes(StandardCharsets.UTF_8));
-            } else {
-                byteArrays.add(("\"" + entry.getKey() + "\"\r\n\r\n" + entry.getValue() + "\r\n")
-                        .getBytes(StandardCharsets.UTF_8));
+    /**
+     * True if the request could not be sent. Other I/O errors, response timeouts included, may happen once the server
+     * has received the upload: the upload is not retried, as it is not idempotent.
+     */
+    private static boolean isConnectionFailure(Throwable error) {
+        Throwable cause = getCause(error);
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    /**
+     * Exponential backoff bounded by the maximum retry backoff, with a random jitter between half the delay and the delay.
+     */
+    private long getRetryDelay(int attempt) {
+        long delay = Math.min(uploadRetryBackoff.toMillis() << Math.min(attempt, 20), MAX_RETRY_BACKOFF.toMillis());
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Delay in milliseconds requested by the Retry-After header of the response, in seconds, bounded by the maximum
+     * retry backoff. 0 when the header is missing or is an HTTP date.
+     */
+    private static long getRetryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+            .filter(retryAfter -> retryAfter.matches("\\d{1,9}"))
+            .map(retryAfter -> Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)), MAX_RETRY_BACKOFF.toMillis()))
+            .orElse(0L);
+    }
+
+    /**
+     * Send several boundary files to the cgmes boundary server in a single multipart request.
+     * The server answers with the import status of each file, as a json array of {"filename": ..., "status": ...} objects.
+     *
+     * @return the import results, in the order of the given files, or an empty optional when the files are to be imported
+     * one by one with {@link #importBoundaryAsync}: single file or server not supporting batch imports. The single
+     * imports are left to the caller, as they wait for the upload limiter and must not run on the http client threads.
+     */
+    public CompletableFuture<Optional<List<ImportResult>>> importBoundariesAsync(List<TransferableFile> boundaryFiles) throws InterruptedException {
+        if (batchUnsupported || boundaryFiles.size() == 1) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        MultipartBodyPublisher multipartBody = new MultipartBodyPublisher(compression);
+        boundaryFiles.forEach(boundaryFile -> multipartBody.addFilePart("files", boundaryFile));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(serviceUrl + API_VERSION + "/boundaries/batch"))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", multipartBody.getContentType())
+                .POST(multipartBody.build())
+                .build();
+
+        return sendUpload(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (BATCH_UNSUPPORTED_STATUS_CODES.contains(response.statusCode())) {
+                LOGGER.info("Batch import not supported by the cgmes boundary server (status {}), boundary files are imported one by one", response.statusCode());
+                batchUnsupported = true;
+                return Optional.empty();
             }
+            return Optional.of(toImportResults(boundaryFiles, response));
+        });
+    }
+
+    private static List<ImportResult> toImportResults(List<TransferableFile> boundaryFiles, HttpResponse<byte[]> response) {
+        Map<String, Integer> statusByFilename = new HashMap<>();
+        if (response.statusCode() == 200) {
+            try {
+                for (JsonNode fileStatus : OBJECT_MAPPER.readTree(response.body())) {
+                    statusByFilename.put(fileStatus.path("filename").asText(), fileStatus.path("status").asInt());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            LOGGER.error(response.toString());
         }
 
-        // Closing boundary
-        byteArrays.add(("--" + boundary + "--").getBytes(StandardCharsets.UTF_8));
+        // a file missing from the response has not been imported, it gets the status of the whole request
+        int defaultStatus = response.statusCode() == 200 ? 500 : response.statusCode();
+        return boundaryFiles.stream()
+            .map(boundaryFile -> new ImportResult(boundaryFile.getName(), statusByFilename.getOrDefault(boundaryFile.getName(), defaultStatus)))
+            .collect(Collectors.toList());
+    }
 
-        // Serializing as byte array
-        return HttpRequest.BodyPublishers.ofByteArrays(byteArrays);
+    /**
+     * Read the boundary infos json array while it is received, only the id and the file name of each boundary are kept.
+     * Boundary infos without id are skipped.
+     */
+    static List<BoundaryInfo> readBoundariesInfos(InputStream is) throws IOException {
+        List<BoundaryInfo> boundariesInfos = new ArrayList<>();
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Boundary infos array expected");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String id = null;
+                String filename = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("id".equals(fieldName)) {
+                        id = parser.getValueAsString();
+                    } else if ("filename".equals(fieldName)) {
+                        filename = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (id != null) {
+                    boundariesInfos.add(new BoundaryInfo(id, filename, null));
+                } else {
+                    LOGGER.warn("Ignoring boundary info without id, file name '{}'", filename);
+                }
+            }
+        }
+        return boundariesInfos;
     }
 
     public List<BoundaryInfo> getBoundariesInfos() throws InterruptedException {
+        return getBoundariesInfos(new BoundaryInfosCache());
+    }
+
+    /**
+     * Get the boundary infos, revalidating the cached ones with their ETag.
+     * A full fetch is done when nothing is cached or when the server does not answer the revalidation with 304.
+     */
+    public List<BoundaryInfo> getBoundariesInfos(BoundaryInfosCache cache) throws InterruptedException {
+        return fetchBoundariesInfos(cache).orElse(Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #getBoundariesInfos(BoundaryInfosCache)}, but empty when the boundary infos could not be fetched,
+     * instead of an empty list of boundary infos.
+     */
+    public Optional<List<BoundaryInfo>> fetchBoundariesInfos(BoundaryInfosCache cache) throws InterruptedException {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                 .uri(URI.create(serviceUrl + API_VERSION + "/boundaries/infos"))
-                .GET()
-                .build();
+                .GET();
+            cache.getETag().ifPresent(eTag -> requestBuilder.header("If-None-Match", eTag));
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<InputStream> response = httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
 
-            if (response.statusCode() == 200) {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.registerModule(new JavaTimeModule());
-                return mapper.readValue(response.body(), new TypeReference<>() { });
-            } else {
-                LOGGER.error(response.toString());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 304) {
+                    LOGGER.info("Boundary infos not modified, {} boundary infos read from cache", cache.getBoundariesInfos().size());
+                    return Optional.of(cache.getBoundariesInfos());
+                } else if (response.statusCode() == 200) {
+                    List<BoundaryInfo> boundariesInfos = readBoundariesInfos(body);
+                    // without ETag, the previously cached boundary infos are dropped
+                    cache.update(response.headers().firstValue("ETag").orElse(null), boundariesInfos);
+                    return Optional.of(boundariesInfos);
+                } else {
+                    LOGGER.error(response.toString());
+                }
             }
         } catch (IOException e) {
             LOGGER.error("I/O Error while getting all boundary infos");
@@ -118,6 +337,6 @@ public class CgmesBoundaryServiceRequester {
             LOGGER.error("Interruption while getting all boundary infos");
             Thread.currentThread().interrupt();
         }
-        return Collections.emptyList();
+        return Optional.empty();
     }
 }
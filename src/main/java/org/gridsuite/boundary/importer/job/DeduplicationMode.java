@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+/**
+ * How boundary files already known by the cgmes boundary server are detected.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public enum DeduplicationMode {
+    /**
+     * Strict mode: each boundary file is parsed and checked by its FullModel id.
+     */
+    ID,
+
+    /**
+     * A boundary file with the same name as a known boundary is skipped without being read nor parsed.
+     * Other boundary files are still checked by id.
+     */
+    FILENAME
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+/**
+ * Response of the cgmes boundary server to the import of a boundary file.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class ImportResult {
+
+    private final String fileName;
+
+    private final int statusCode;
+
+    public ImportResult(String fileName, int statusCode) {
+        this.fileName = fileName;
+        this.statusCode = statusCode;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isImported() {
+        return statusCode == 200;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and volumes of a job execution: latency histogram of each stage, bytes transferred and throughput of each
+ * boundary container. Metrics may be recorded concurrently by several workers, and are exported as a JSON run report.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class JobMetrics {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // bucket i counts the durations in [2^(i-1), 2^i[ microseconds, the last one also counts the longer durations
+    private static final int BUCKET_COUNT = 40;
+
+    public enum Stage {
+        LIST_FILES,
+        GET_BOUNDARIES_INFOS,
+        // in streaming mode, the download is part of the unzip stage
+        DOWNLOAD,
+        UNZIP,
+        PARSE_ID,
+        DEDUPLICATION,
+        UPLOAD
+    }
+
+    /**
+     * Latency histogram of a stage, with power of two buckets.
+     */
+    public static final class StageTimer {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1));
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getTotalMillis() {
+            return toMillis(totalNanos.sum());
+        }
+
+        public double getMaxMillis() {
+            return toMillis(maxNanos.get());
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, capped to the max duration.
+         */
+        public double getPercentileMillis(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * getCount());
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min((1L << i) / 1000d, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        private Map<String, Object> toReport() {
+            Map<String, Object> stageReport = new LinkedHashMap<>();
+            long stageCount = getCount();
+            stageReport.put("count", stageCount);
+            stageReport.put("totalMillis", getTotalMillis());
+            stageReport.put("meanMillis", stageCount > 0 ? getTotalMillis() / stageCount : 0d);
+            stageReport.put("p50Millis", getPercentileMillis(50));
+            stageReport.put("p95Millis", getPercentileMillis(95));
+            stageReport.put("p99Millis", getPercentileMillis(99));
+            stageReport.put("maxMillis", getMaxMillis());
+            return stageReport;
+        }
+    }
+
+    private final Instant startTime = Instant.now();
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<Stage, StageTimer> timers = new EnumMap<>(Stage.class);
+
+    private final LongAdder bytesDownloaded = new LongAdder();
+
+    private final LongAdder bytesUploaded = new LongAdder();
+
+    private final Queue<Map<String, Object>> containers = new ConcurrentLinkedQueue<>();
+
+    public JobMetrics() {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, new StageTimer());
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Record the duration of a stage started at the given {@link System#nanoTime()}.
+     */
+    public void record(Stage stage, long stageStartNanos) {
+        timers.get(stage).record(System.nanoTime() - stageStartNanos);
+    }
+
+    public StageTimer getTimer(Stage stage) {
+        return timers.get(stage);
+    }
+
+    /**
+     * Bytes transferred by a successful container download. The partial and staged files reused from the spool directory are not counted.
+     */
+    public void addBytesDownloaded(long bytes) {
+        bytesDownloaded.add(bytes);
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    /**
+     * Size of an imported boundary file, before compression. Unknown sizes are ignored.
+     */
+    public void addBytesUploaded(long bytes) {
+        if (bytes > 0) {
+            bytesUploaded.add(bytes);
+        }
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.sum();
+    }
+
+    /**
+     * Record a boundary container which boundary files have all been handled, acquisition started at the given
+     * {@link System#nanoTime()}.
+     */
+    public void containerDone(BoundaryContainerInfo container, long containerStartNanos, boolean imported) {
+        long elapsedNanos = System.nanoTime() - containerStartNanos;
+        Map<String, Object> containerReport = new LinkedHashMap<>();
+        containerReport.put("name", container.getName());
+        containerReport.put("size", container.getSize());
+        containerReport.put("elapsedMillis", toMillis(elapsedNanos));
+        containerReport.put("bytesPerSecond", elapsedNanos > 0 ? container.getSize() * 1e9 / elapsedNanos : 0d);
+        containerReport.put("imported", imported);
+        containers.add(containerReport);
+    }
+
+    public List<Map<String, Object>> getContainers() {
+        return new ArrayList<>(containers);
+    }
+
+    public void log(Logger logger) {
+        for (Map.Entry<Stage, StageTimer> timer : timers.entrySet()) {
+            StageTimer stageTimer = timer.getValue();
+            if (stageTimer.getCount() > 0) {
+                logger.info("Stage {}: {} calls, {} ms total, p95 {} ms, max {} ms", timer.getKey(), stageTimer.getCount(),
+                            Math.round(stageTimer.getTotalMillis()), stageTimer.getPercentileMillis(95), stageTimer.getMaxMillis());
+            }
+        }
+        logger.info("{} bytes downloaded, {} bytes uploaded", getBytesDownloaded(), getBytesUploaded());
+    }
+
+    /**
+     * Write the run report, replacing the one of the previous run.
+     */
+    public void writeReport(Path reportFile, BoundaryImportReport report) throws IOException {
+        Map<String, Object> runReport = new LinkedHashMap<>();
+        runReport.put("startTime", startTime.toString());
+        runReport.put("elapsedMillis", toMillis(System.nanoTime() - startNanos));
+        runReport.put("filesImported", report.getFilesImported().size());
+        runReport.put("filesAlreadyImported", report.getFilesAlreadyImported().size());
+        runReport.put("filesImportFailed", report.getFilesImportFailed().size());
+        runReport.put("bytesDownloaded", getBytesDownloaded());
+        runReport.put("bytesUploaded", getBytesUploaded());
+        Map<String, Object> stages = new LinkedHashMap<>();
+        timers.forEach((stage, timer) -> stages.put(stage.name(), timer.toReport()));
+        runReport.put("stages", stages);
+        runReport.put("containers", getContainers());
+
+        Path parent = reportFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmpFile = reportFile.resolveSibling(reportFile.getFileName() + ".tmp");
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmpFile.toFile(), runReport);
+        Files.move(tmpFile, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
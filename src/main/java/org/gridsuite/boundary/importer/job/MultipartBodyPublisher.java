@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Streaming multipart/form-data request body.
+ * File parts are not copied: in memory contents are published as is, other contents are streamed from their source
+ * when the request is sent, so that the memory used does not depend on the file size.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class MultipartBodyPublisher {
+
+    private static final String MIME_TYPE = "application/octet-stream";
+
+    // gzip member header: magic number, deflate method, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String boundary;
+
+    private final UploadCompression compression;
+
+    private final List<HttpRequest.BodyPublisher> publishers = new ArrayList<>();
+
+    public MultipartBodyPublisher() {
+        this(UploadCompression.NONE);
+    }
+
+    public MultipartBodyPublisher(UploadCompression compression) {
+        this.compression = compression;
+        // the boundary only has to be unlikely in the parts content, a cryptographic random is not needed
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boundary = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    public String getContentType() {
+        return "multipart/form-data;boundary=" + boundary;
+    }
+
+    public MultipartBodyPublisher addFilePart(String name, TransferableFile file) {
+        publishers.add(ofString("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + file.getName()
+            + "\"\r\nContent-Type: " + MIME_TYPE + "\r\n"
+            + (compression == UploadCompression.GZIP ? "Content-Encoding: gzip\r\n" : "") + "\r\n"));
+        publishers.add(compression == UploadCompression.GZIP ? ofGzipContent(file) : ofContent(file));
+        publishers.add(ofString("\r\n"));
+        return this;
+    }
+
+    public HttpRequest.BodyPublisher build() {
+        List<HttpRequest.BodyPublisher> body = new ArrayList<>(publishers);
+        // Closing boundary
+        body.add(ofString("--" + boundary + "--"));
+        return HttpRequest.BodyPublishers.concat(body.toArray(new HttpRequest.BodyPublisher[0]));
+    }
+
+    private static HttpRequest.BodyPublisher ofString(String s) {
+        return HttpRequest.BodyPublishers.ofByteArray(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpRequest.BodyPublisher ofContent(TransferableFile file) {
+        if (file.isInMemory()) {
+            return HttpRequest.BodyPublishers.ofByteArray(file.getData());
+        }
+        HttpRequest.BodyPublisher streamPublisher = HttpRequest.BodyPublishers.ofInputStream(() -> openStream(file));
+        return file.getSize() != TransferableFile.UNKNOWN_SIZE
+            ? HttpRequest.BodyPublishers.fromPublisher(streamPublisher, file.getSize())
+            : streamPublisher;
+    }
+
+    private static HttpRequest.BodyPublisher ofGzipContent(TransferableFile file) {
+        // the compressed size is only known once compressed, the part is streamed without length
+        return HttpRequest.BodyPublishers.ofInputStream(() -> gzip(openStream(file)));
+    }
+
+    /**
+     * Gzip compress the given stream while it is read.
+     */
+    static InputStream gzip(InputStream in) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        InputStream deflated = new DeflaterInputStream(new CheckedInputStream(in, crc), deflater);
+
+        // the trailer is built once the whole content has been compressed
+        Enumeration<InputStream> members = new Enumeration<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < 3;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                switch (next++) {
+                    case 0:
+                        return new ByteArrayInputStream(GZIP_HEADER);
+                    case 1:
+                        return deflated;
+                    case 2:
+                        return new ByteArrayInputStream(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                            .putInt((int) crc.getValue())
+                            .putInt((int) deflater.getBytesRead())
+                            .array());
+                    default:
+                        throw new NoSuchElementException();
+                }
+            }
+        };
+        return new SequenceInputStream(members) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    private static InputStream openStream(TransferableFile file) {
+        try {
+            return file.openStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
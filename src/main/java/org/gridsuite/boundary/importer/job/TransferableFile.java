@@ -6,25 +6,86 @@
  */
 package org.gridsuite.boundary.importer.job;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
  */
 public class TransferableFile {
 
+    public static final long UNKNOWN_SIZE = -1;
+
+    /**
+     * Source of a file content which is not held in memory.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
     private final byte[] fileData;
 
     private final String fileName;
 
+    private final long fileSize;
+
+    private final ContentSource contentSource;
+
     public TransferableFile(String fileName, byte[] fileData) {
         this.fileName = fileName;
         this.fileData = fileData;
+        this.fileSize = fileData.length;
+        this.contentSource = () -> new ByteArrayInputStream(fileData);
+    }
+
+    /**
+     * File which content is streamed from the given source each time it is read.
+     *
+     * @param fileSize size of the content, or {@link #UNKNOWN_SIZE}
+     */
+    public TransferableFile(String fileName, long fileSize, ContentSource contentSource) {
+        this.fileName = fileName;
+        this.fileData = null;
+        this.fileSize = fileSize;
+        this.contentSource = contentSource;
+    }
+
+    public TransferableFile(String fileName, Path filePath) throws IOException {
+        this(fileName, Files.size(filePath), () -> Files.newInputStream(filePath));
     }
 
     public String getName() {
         return fileName;
     }
 
+    /**
+     * Content of the file, read from its source if it is not held in memory.
+     */
     public byte[] getData() {
-        return fileData;
+        if (fileData != null) {
+            return fileData;
+        }
+        try (InputStream is = contentSource.open()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean isInMemory() {
+        return fileData != null;
+    }
+
+    public long getSize() {
+        return fileSize;
+    }
+
+    public InputStream openStream() throws IOException {
+        return contentSource.open();
     }
 }
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job;
+
+/**
+ * Encoding of the boundary files sent to the cgmes boundary server.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public enum UploadCompression {
+    /**
+     * Boundary files are sent as is.
+     */
+    NONE,
+
+    /**
+     * Each file part is gzip compressed while being sent, with a Content-Encoding: gzip part header.
+     * Only for a cgmes boundary server which decodes this part header: it is not part of multipart/form-data
+     * (RFC 7578 section 4.8) and standard multipart resolvers ignore it, so that other servers would import the
+     * compressed bytes as the boundary file.
+     */
+    GZIP
+}
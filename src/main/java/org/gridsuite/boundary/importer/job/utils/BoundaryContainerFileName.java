@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.utils;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Components of a boundary zip container file name: {@code <effectiveDateTime>__ENTSOE_BD_<fileVersion>.zip}.
+ * Container file names are ordered by effective datetime, then by file version.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public final class BoundaryContainerFileName implements Comparable<BoundaryContainerFileName> {
+
+    private static final Comparator<BoundaryContainerFileName> COMPARATOR = Comparator
+        .comparing(BoundaryContainerFileName::getEffectiveDateTime)
+        .thenComparingInt(BoundaryContainerFileName::getVersion);
+
+    private final String name;
+
+    private final OffsetDateTime effectiveDateTime;
+
+    private final int version;
+
+    BoundaryContainerFileName(String name, LocalDateTime effectiveDateTime, int version) {
+        this.name = name;
+        this.effectiveDateTime = effectiveDateTime.atOffset(ZoneOffset.UTC);
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public OffsetDateTime getEffectiveDateTime() {
+        return effectiveDateTime;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public int compareTo(BoundaryContainerFileName other) {
+        return COMPARATOR.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BoundaryContainerFileName other = (BoundaryContainerFileName) o;
+        return version == other.version && effectiveDateTime.equals(other.effectiveDateTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(effectiveDateTime, version);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.utils;
+
+/**
+ * Type of the boundary files found in a boundary container.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public enum BoundaryFileType {
+    EQBD("__ENTSOE_EQBD_"),
+    TPBD("__ENTSOE_TPBD_");
+
+    private final String marker;
+
+    BoundaryFileType(String marker) {
+        this.marker = marker;
+    }
+
+    /**
+     * Part of the file name identifying the boundary file type.
+     */
+    public String getMarker() {
+        return marker;
+    }
+}
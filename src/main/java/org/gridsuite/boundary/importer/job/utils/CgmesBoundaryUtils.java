@@ -6,8 +6,9 @@
  */
 package org.gridsuite.boundary.importer.job.utils;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 /**
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
@@ -18,11 +19,16 @@ public final class CgmesBoundaryUtils {
     public static final String TPBD_FILE_REGEX = "^(.*?(__ENTSOE_TPBD_).*(.xml))$";
     public static final String EQBD_FILE_REGEX = "^(.*?(__ENTSOE_EQBD_).*(.xml))$";
 
-    private static final String DOT_REGEX = "[.]";
-    private static final String UNDERSCORE_REGEX = "_";
+    // <effectiveDateTime>__ENTSOE_BD_<fileVersion>.zip
+    private static final String CONTAINER_MARKER = "__ENTSOE_BD_";
+    private static final String CONTAINER_EXTENSION = ".zip";
+    private static final int EFFECTIVE_DATE_TIME_LENGTH = 14;
     private static final int VERSION_LENGTH = 3;
+    private static final int VERSION_INDEX = EFFECTIVE_DATE_TIME_LENGTH + CONTAINER_MARKER.length();
+    private static final int CONTAINER_FILE_NAME_LENGTH = VERSION_INDEX + VERSION_LENGTH + CONTAINER_EXTENSION.length();
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(CgmesBoundaryUtils.class);
+    private static final String BOUNDARY_FILE_EXTENSION = "xml";
+    private static final BoundaryFileType[] BOUNDARY_FILE_TYPES = BoundaryFileType.values();
 
     private CgmesBoundaryUtils() {
     }
@@ -34,33 +40,64 @@ public final class CgmesBoundaryUtils {
     <fileVersion>: three characters long positive integer number between 000 and 999
      */
     public static boolean isValidBoundaryContainerFileName(String filename) {
-        if (filename.split(DOT_REGEX).length == 2) {
-            String base = filename.split(DOT_REGEX)[0];
-            String ext = filename.split(DOT_REGEX)[1];
-            if (ext.equals("zip") && base.split(UNDERSCORE_REGEX).length == 5) {
-                String[] parts = base.split(UNDERSCORE_REGEX);
-                if (parts[1].isEmpty() &&
-                    parts[2].equals("ENTSOE") &&
-                    parts[3].equals("BD") &&
-                    isValidFileVersion(parts[4])) {
-                    return true;
-                }
+        return parseBoundaryContainerFileName(filename).isPresent();
+    }
+
+    /* Single pass parsing of a boundary zip container file name, nothing is allocated when the name is not valid.
+     */
+    public static Optional<BoundaryContainerFileName> parseBoundaryContainerFileName(String filename) {
+        if (filename.length() != CONTAINER_FILE_NAME_LENGTH
+            || filename.charAt(8) != 'T'
+            || filename.charAt(13) != 'Z'
+            || !filename.startsWith(CONTAINER_MARKER, EFFECTIVE_DATE_TIME_LENGTH)
+            || !filename.endsWith(CONTAINER_EXTENSION)) {
+            return Optional.empty();
+        }
+        int year = parseDigits(filename, 0, 4);
+        int month = parseDigits(filename, 4, 6);
+        int day = parseDigits(filename, 6, 8);
+        int hour = parseDigits(filename, 9, 11);
+        int minute = parseDigits(filename, 11, 13);
+        int version = parseDigits(filename, VERSION_INDEX, VERSION_INDEX + VERSION_LENGTH);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || version <= 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new BoundaryContainerFileName(filename, LocalDateTime.of(year, month, day, hour, minute), version));
+        } catch (DateTimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    // value of the decimal digits between begin and end, or -1 if a character is not a digit
+    private static int parseDigits(String s, int begin, int end) {
+        int value = 0;
+        for (int i = begin; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
+            value = value * 10 + (c - '0');
         }
-        return false;
+        return value;
     }
 
-    private static boolean isValidFileVersion(String version) {
-        try {
-            int v = Integer.parseInt(version);
-            if (version.length() != VERSION_LENGTH) {
-                LOGGER.warn("File version length is {} and it should be {}", version.length(), VERSION_LENGTH);
-                return false;
+    /* Type of a boundary file found in a boundary container, or null if it is not a boundary file.
+    A boundary file name contains __ENTSOE_EQBD_ or __ENTSOE_TPBD_ followed by the .xml extension.
+     */
+    public static BoundaryFileType getBoundaryFileType(String filename) {
+        for (BoundaryFileType type : BOUNDARY_FILE_TYPES) {
+            int index = filename.indexOf(type.getMarker());
+            // the marker has to be followed by the extension
+            if (index >= 0 && index + type.getMarker().length() + BOUNDARY_FILE_EXTENSION.length() + 1 <= filename.length()
+                && filename.endsWith(BOUNDARY_FILE_EXTENSION)) {
+                return type;
             }
-            return v > 0 && v < 1000;
-        } catch (NumberFormatException e) {
-            LOGGER.warn("Invalid file version {}", version);
-            return false;
         }
+        return null;
+    }
+
+    public static boolean isBoundaryFileName(String filename) {
+        return getBoundaryFileType(filename) != null;
     }
 }
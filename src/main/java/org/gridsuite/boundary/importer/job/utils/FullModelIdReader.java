@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.utils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader of the id of a CGMES FullModel header.
+ * Reading stops as soon as the md:FullModel element is found, so that it does not depend on the file size.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public final class FullModelIdReader {
+
+    private static final String RDF_NAMESPACE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String FULL_MODEL = "FullModel";
+    private static final String ABOUT = "about";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private FullModelIdReader() {
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Read the rdf:about id of the md:FullModel element of a UTF-8 encoded CGMES file.
+     * The content is decoded as UTF-8 whatever the encoding of its XML declaration, as required for CGMES files.
+     * The stream is not closed.
+     *
+     * @throws IOException if the content is not well-formed XML, or has no md:FullModel element with an rdf:about id
+     */
+    public static String readId(InputStream is) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(is, StandardCharsets.UTF_8.name());
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && FULL_MODEL.equals(reader.getLocalName())) {
+                    String id = reader.getAttributeValue(RDF_NAMESPACE, ABOUT);
+                    if (id == null) {
+                        throw new IOException("FullModel element has no rdf:about attribute");
+                    }
+                    return id;
+                }
+            }
+            throw new IOException("FullModel element not found");
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing to do, the underlying stream is not owned by the reader
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.utils;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Delay between two polls of the acquisition server: the minimum interval after a poll which found containers to
+ * acquire, doubled after each idle poll up to the maximum interval. A random jitter, between half the interval and
+ * the interval, keeps several job instances from polling the servers in lockstep.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public class PollingBackoff {
+
+    private final Duration minInterval;
+
+    private final Duration maxInterval;
+
+    private final Random random;
+
+    private Duration interval;
+
+    public PollingBackoff(Duration minInterval, Duration maxInterval) {
+        this(minInterval, maxInterval, new Random());
+    }
+
+    public PollingBackoff(Duration minInterval, Duration maxInterval, Random random) {
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("Invalid polling intervals: " + minInterval + ", " + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.random = random;
+    }
+
+    public Duration next(boolean workFound) {
+        if (workFound || interval == null) {
+            interval = minInterval;
+        } else {
+            Duration doubled = interval.multipliedBy(2);
+            interval = doubled.compareTo(maxInterval) < 0 ? doubled : maxInterval;
+        }
+        long millis = interval.toMillis();
+        long half = millis / 2;
+        return Duration.ofMillis(half + (long) (random.nextDouble() * (millis - half)));
+    }
+
+    /**
+     * Interval before jitter of the last computed delay.
+     */
+    public Duration getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2021, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.boundary.importer.job.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Eviction of the files staged in the spool directory: files not used for longer than the maximum age are deleted,
+ * then the least recently used files are deleted until the directory fits in the maximum size.
+ * The last use of a file is its modification time, which is refreshed when a staged container is reused.
+ * Only the staged containers and their partial files are evicted, other files of the directory are left untouched.
+ *
+ * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
+ */
+public final class SpoolDirectoryEvictor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpoolDirectoryEvictor.class);
+
+    // <container name>.<size>-<last modified time>, followed by .part<start>-<end> for a partial file
+    private static final Pattern SPOOLED_FILE_NAME = Pattern.compile(".+\\.\\d+-\\d+(\\.part\\d+-\\d+)?");
+
+    private SpoolDirectoryEvictor() {
+    }
+
+    /**
+     * @return the number of evicted files
+     */
+    public static int evict(Path spoolDirectory, long maxSize, Duration maxAge) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.list(spoolDirectory)) {
+            paths = stream.collect(Collectors.toList());
+        }
+        Map<Path, BasicFileAttributes> files = new HashMap<>();
+        for (Path path : paths) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.isRegularFile() && SPOOLED_FILE_NAME.matcher(path.getFileName().toString()).matches()) {
+                files.put(path, attributes);
+            }
+        }
+
+        // least recently used first
+        List<Path> evictionOrder = new ArrayList<>(files.keySet());
+        evictionOrder.sort(Comparator.comparing(path -> files.get(path).lastModifiedTime()));
+
+        Instant oldest = Instant.now().minus(maxAge);
+        long totalSize = files.values().stream().mapToLong(BasicFileAttributes::size).sum();
+        int evicted = 0;
+        for (Path path : evictionOrder) {
+            BasicFileAttributes attributes = files.get(path);
+            if (totalSize <= maxSize && !attributes.lastModifiedTime().toInstant().isBefore(oldest)) {
+                break;
+            }
+            Files.deleteIfExists(path);
+            totalSize -= attributes.size();
+            evicted++;
+        }
+        if (evicted > 0) {
+            LOGGER.info("{} files evicted from spool directory '{}'", evicted, spoolDirectory);
+        }
+        return evicted;
+    }
+}
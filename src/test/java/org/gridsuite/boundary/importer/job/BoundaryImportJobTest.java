@@ -6,12 +6,23 @@
  */
 package org.gridsuite.boundary.importer.job;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.stefanbirkner.fakesftpserver.rule.FakeSftpServerRule;
+import com.powsybl.commons.config.InMemoryPlatformConfig;
+import com.powsybl.commons.config.MapModuleConfig;
+import org.gridsuite.boundary.importer.job.utils.BoundaryContainerFileName;
+import org.gridsuite.boundary.importer.job.utils.BoundaryFileType;
+import org.gridsuite.boundary.importer.job.utils.CgmesBoundaryUtils;
+import org.gridsuite.boundary.importer.job.utils.FullModelIdReader;
+import org.gridsuite.boundary.importer.job.utils.PollingBackoff;
+import org.gridsuite.boundary.importer.job.utils.SpoolDirectoryEvictor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockftpserver.fake.FakeFtpServer;
 import org.mockftpserver.fake.UserAccount;
 import org.mockftpserver.fake.filesystem.DirectoryEntry;
@@ -19,14 +30,34 @@ import org.mockftpserver.fake.filesystem.FileEntry;
 import org.mockftpserver.fake.filesystem.FileSystem;
 import org.mockftpserver.fake.filesystem.UnixFakeFileSystem;
 import org.mockserver.junit.MockServerRule;
+import org.mockserver.matchers.Times;
 import org.mockserver.model.MediaType;
 import org.mockserver.verify.VerificationTimes;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
@@ -43,6 +74,9 @@ public class BoundaryImportJobTest {
     @Rule
     public final MockServerRule mockServer = new MockServerRule(this, 45385);
 
+    @Rule
+    public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Before
     public void setUp() throws IOException {
         SFTP_SERVER_RULE.deleteAllFilesAndDirectories();
@@ -57,18 +91,29 @@ public class BoundaryImportJobTest {
     public void testSftpAcquisition() throws IOException {
         SFTP_SERVER_RULE.createDirectory("/boundaries");
         SFTP_SERVER_RULE.putFile("/boundaries/20210325T1030Z__ENTSOE_BD_001.zip", "fake file content 1", UTF_8);
-        SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z__ENTSOE_BD_006.zip", "fake file content 2", UTF_8);
+        SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z__ENTSOE_BD_006.zip", "fake file content 2, longer", UTF_8);
         SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z__ENTSOE_BD_006.doc", "fake file content 3", UTF_8);
         SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z__ENTSOE_BD_aaa.zip", "fake file content 4", UTF_8);
         SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z__ENTSOE_XX_aaa.zip", "fake file content 5", UTF_8);
         SFTP_SERVER_RULE.putFile("/boundaries/20210328T0030Z_FOO_ENTSOE_BD_007.zip", "fake file content 6", UTF_8);
+        SFTP_SERVER_RULE.createDirectory("/boundaries/20210330T0030Z__ENTSOE_BD_008.zip");
 
         String acquisitionServerUrl = "sftp://localhost:" + SFTP_SERVER_RULE.getPort();
 
         try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer(acquisitionServerUrl, "dummy", "dummy")) {
             boundaryAcquisitionServer.open();
-            Map<String, String> retrievedFiles = boundaryAcquisitionServer.listFiles("./boundaries");
+            List<BoundaryContainerInfo> retrievedFiles = boundaryAcquisitionServer.listFiles("./boundaries");
             assertEquals(2, retrievedFiles.size());
+            assertEquals("20210325T1030Z__ENTSOE_BD_001.zip", retrievedFiles.get(0).getName());
+            assertEquals("fake file content 1".length(), retrievedFiles.get(0).getSize());
+            assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", retrievedFiles.get(1).getName());
+            assertEquals("fake file content 2, longer".length(), retrievedFiles.get(1).getSize());
+            assertTrue(retrievedFiles.get(0).getUrl().endsWith("/boundaries/20210325T1030Z__ENTSOE_BD_001.zip"));
+
+            // only the containers newer than the watermark are listed
+            List<BoundaryContainerInfo> newFiles = boundaryAcquisitionServer.listFiles("./boundaries", retrievedFiles.get(0).getFileName());
+            assertEquals(1, newFiles.size());
+            assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", newFiles.get(0).getName());
 
             TransferableFile file1 = boundaryAcquisitionServer.getFile("20210325T1030Z__ENTSOE_BD_001.zip", acquisitionServerUrl + "/boundaries/20210325T1030Z__ENTSOE_BD_001.zip");
             assertEquals("20210325T1030Z__ENTSOE_BD_001.zip", file1.getName());
@@ -76,7 +121,11 @@ public class BoundaryImportJobTest {
 
             TransferableFile file2 = boundaryAcquisitionServer.getFile("20210328T0030Z__ENTSOE_BD_006.zip", acquisitionServerUrl + "/boundaries/20210328T0030Z__ENTSOE_BD_006.zip");
             assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", file2.getName());
-            assertEquals("fake file content 2", new String(file2.getData(), UTF_8));
+            assertEquals("fake file content 2, longer", new String(file2.getData(), UTF_8));
+
+            try (InputStream is = boundaryAcquisitionServer.openFile(acquisitionServerUrl + "/boundaries/20210325T1030Z__ENTSOE_BD_001.zip")) {
+                assertEquals("fake file content 1", new String(is.readAllBytes(), UTF_8));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -87,7 +136,7 @@ public class BoundaryImportJobTest {
         FileSystem fileSystem = new UnixFakeFileSystem();
         fileSystem.add(new DirectoryEntry("/boundaries"));
         fileSystem.add(new FileEntry("/boundaries/20210325T1030Z__ENTSOE_BD_001.zip", "fake file content 1"));
-        fileSystem.add(new FileEntry("/boundaries/20210328T0030Z__ENTSOE_BD_006.zip", "fake file content 2"));
+        fileSystem.add(new FileEntry("/boundaries/20210328T0030Z__ENTSOE_BD_006.zip", "fake file content 2, longer"));
         fileSystem.add(new FileEntry("/boundaries/20210328T0030Z__ENTSOE_BD_006.doc", "fake file content 3"));
         fileSystem.add(new FileEntry("/boundaries/20210328T0030Z__ENTSOE_BD_aaa.zip", "fake file content 4"));
         fileSystem.add(new FileEntry("/boundaries/20210328T0030Z__ENTSOE_XX_aaa.zip", "fake file content 5"));
@@ -101,10 +150,14 @@ public class BoundaryImportJobTest {
         fakeFtpServer.start();
 
         String acquisitionServerUrl = "ftp://localhost:" + fakeFtpServer.getServerControlPort();
-        try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer(acquisitionServerUrl, "dummy_ftp", "dummy_ftp")) {
+        try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer(acquisitionServerUrl, "dummy_ftp", "dummy_ftp", 2)) {
             boundaryAcquisitionServer.open();
-            Map<String, String> retrievedFiles = boundaryAcquisitionServer.listFiles("./boundaries");
+            List<BoundaryContainerInfo> retrievedFiles = boundaryAcquisitionServer.listFiles("./boundaries");
             assertEquals(2, retrievedFiles.size());
+            assertEquals("20210325T1030Z__ENTSOE_BD_001.zip", retrievedFiles.get(0).getName());
+            assertEquals("fake file content 1".length(), retrievedFiles.get(0).getSize());
+            assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", retrievedFiles.get(1).getName());
+            assertEquals("fake file content 2, longer".length(), retrievedFiles.get(1).getSize());
 
             TransferableFile file1 = boundaryAcquisitionServer.getFile("20210325T1030Z__ENTSOE_BD_001.zip", acquisitionServerUrl + "/boundaries/20210325T1030Z__ENTSOE_BD_001.zip");
             assertEquals("20210325T1030Z__ENTSOE_BD_001.zip", file1.getName());
@@ -112,7 +165,16 @@ public class BoundaryImportJobTest {
 
             TransferableFile file2 = boundaryAcquisitionServer.getFile("20210328T0030Z__ENTSOE_BD_006.zip", acquisitionServerUrl + "/boundaries/20210328T0030Z__ENTSOE_BD_006.zip");
             assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", file2.getName());
-            assertEquals("fake file content 2", new String(file2.getData(), UTF_8));
+            assertEquals("fake file content 2, longer", new String(file2.getData(), UTF_8));
+
+            // the session is held until the stream is closed
+            try (InputStream is = boundaryAcquisitionServer.openFile(acquisitionServerUrl + "/boundaries/20210328T0030Z__ENTSOE_BD_006.zip")) {
+                assertEquals(1, boundaryAcquisitionServer.getIdleSessionCount());
+                assertEquals("fake file content 2, longer", new String(is.readAllBytes(), UTF_8));
+            }
+            assertEquals(2, boundaryAcquisitionServer.getSessionPoolSize());
+            assertEquals(2, boundaryAcquisitionServer.getIdleSessionCount());
+            assertEquals(4, boundaryAcquisitionServer.getSessionCheckoutCount());
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
@@ -132,25 +194,241 @@ public class BoundaryImportJobTest {
             .respond(response().withStatusCode(status));
     }
 
+    /**
+     * Put the sample boundary container in the acquisition directory of the SFTP server.
+     */
+    private byte[] putSampleContainer() throws IOException {
+        SFTP_SERVER_RULE.createDirectory("/boundaries");
+        byte[] containerContent;
+        try (InputStream isBoundary = getClass().getResourceAsStream("/20210315T0000Z__ENTSOE_BD_002.zip")) {
+            containerContent = isBoundary.readAllBytes();
+        }
+        SFTP_SERVER_RULE.putFile("/boundaries/20210315T0000Z__ENTSOE_BD_002.zip", containerContent);
+        return containerContent;
+    }
+
+    private BoundaryImportReport runPipeline(BoundaryImportParameters parameters) throws IOException, InterruptedException {
+        return runPipeline(new CgmesBoundaryServiceRequester("http://localhost:45385/"), parameters, new BoundaryIndex(List.of()), new BoundaryContentIndex(), new JobMetrics());
+    }
+
+    /**
+     * Import the containers of the acquisition directory of the SFTP server.
+     */
+    private BoundaryImportReport runPipeline(CgmesBoundaryServiceRequester requester, BoundaryImportParameters parameters, BoundaryIndex boundaryIndex,
+                                             BoundaryContentIndex contentIndex, JobMetrics metrics) throws IOException, InterruptedException {
+        BoundaryImportReport report = new BoundaryImportReport();
+        try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer("sftp://localhost:" + SFTP_SERVER_RULE.getPort(), "dummy", "dummy")) {
+            boundaryAcquisitionServer.open();
+
+            BoundaryImportPipeline pipeline = new BoundaryImportPipeline(boundaryAcquisitionServer, requester, parameters, metrics);
+            pipeline.run(boundaryAcquisitionServer.listFiles("./boundaries"), boundaryIndex, contentIndex, report);
+        }
+        return report;
+    }
+
     @Test
     public void testBoundaryImportRequester() throws IOException, InterruptedException {
         CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/");
         addPostBoundaryExpectation(200);
         assertTrue(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_001.xml", "Boundary file content".getBytes(UTF_8))));
 
+        // boundary file streamed from disk
+        Path boundaryPath = tmpFolder.newFile("20210325T1030Z__ENTSOE_TPBD_001.xml").toPath();
+        Files.writeString(boundaryPath, "Boundary file content");
+        assertTrue(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_TPBD_001.xml", boundaryPath)));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+
         mockServer.getClient().clear(request());
         addPostBoundaryExpectation(500);
         assertFalse(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210328T0030Z__ENTSOE_TPBD_006.xml", "Boundary file content".getBytes(UTF_8))));
     }
 
     @Test
-    public void mainTest() throws IOException {
-        SFTP_SERVER_RULE.createDirectory("/boundaries");
+    public void testBoundaryImportRequesterAsync() throws ExecutionException, InterruptedException {
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/", 2);
+        addPostBoundaryExpectation(200);
 
-        try (InputStream isBoundary = getClass().getResourceAsStream("/20210315T0000Z__ENTSOE_BD_002.zip");
-             BufferedInputStream bisBoundary = new BufferedInputStream(isBoundary)) {
-            SFTP_SERVER_RULE.putFile("/boundaries/20210315T0000Z__ENTSOE_BD_002.zip", bisBoundary.readAllBytes());
+        // more uploads than the in flight limit
+        List<CompletableFuture<ImportResult>> imports = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            String fileName = String.format("20210325T1030Z__ENTSOE_EQBD_%03d.xml", i);
+            imports.add(cgmesBoundaryServiceRequester.importBoundaryAsync(new TransferableFile(fileName, "Boundary file content".getBytes(UTF_8))));
+        }
+        for (int i = 0; i < imports.size(); i++) {
+            ImportResult result = imports.get(i).get();
+            assertEquals(String.format("20210325T1030Z__ENTSOE_EQBD_%03d.xml", i + 1), result.getFileName());
+            assertEquals(200, result.getStatusCode());
+            assertTrue(result.isImported());
         }
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(5));
+    }
+
+    @Test
+    public void testBoundaryImportRetry() throws IOException, InterruptedException {
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/",
+            new BoundaryImportParameters().setUploadConcurrency(2).setMaxUploadConcurrency(4).setUploadRetryBackoff(Duration.ofMillis(10)).setUploadMaxRetries(2));
+        AdaptiveConcurrencyLimiter uploadLimiter = cgmesBoundaryServiceRequester.getUploadLimiter();
+
+        // transient failure retried, the limit is decreased then increased again by the successful retry
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries"), Times.once())
+            .respond(response().withStatusCode(503));
+        addPostBoundaryExpectation(200);
+        assertTrue(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_001.xml", "Boundary file content".getBytes(UTF_8))));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+        assertEquals(1, uploadLimiter.getDecreaseCount());
+        assertEquals(2, uploadLimiter.getLimit());
+        assertEquals(0, uploadLimiter.getInFlight());
+
+        // retries are bounded
+        mockServer.getClient().clear(request());
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries"))
+            .respond(response().withStatusCode(503));
+        assertFalse(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_002.xml", "Boundary file content".getBytes(UTF_8))));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(3));
+        assertEquals(0, uploadLimiter.getInFlight());
+
+        // other server errors are neither retried nor considered as overload
+        mockServer.getClient().clear(request());
+        long decreaseCount = uploadLimiter.getDecreaseCount();
+        addPostBoundaryExpectation(500);
+        assertFalse(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_003.xml", "Boundary file content".getBytes(UTF_8))));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(1));
+        assertEquals(decreaseCount, uploadLimiter.getDecreaseCount());
+
+        // a gateway timeout is an overload, but the gateway may have forwarded the upload: it is not retried
+        mockServer.getClient().clear(request());
+        addPostBoundaryExpectation(504);
+        assertFalse(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_004.xml", "Boundary file content".getBytes(UTF_8))));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(1));
+        assertEquals(decreaseCount + 1, uploadLimiter.getDecreaseCount());
+
+        // the delay requested by the server is honoured
+        mockServer.getClient().clear(request());
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries"), Times.once())
+            .respond(response().withStatusCode(429).withHeader("Retry-After", "1"));
+        addPostBoundaryExpectation(200);
+        long start = System.nanoTime();
+        assertTrue(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_005.xml", "Boundary file content".getBytes(UTF_8))));
+        assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void adaptiveConcurrencyLimiterTest() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 3, Duration.ofSeconds(10));
+
+        // fast successful responses grow a limit which is reached, by about one per window
+        limiter.acquire();
+        limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+        limiter.onResponse(System.nanoTime(), false);
+        limiter.onResponse(System.nanoTime(), false);
+        assertEquals(2, limiter.getLimit());
+        limiter.onResponse(System.nanoTime(), false);
+        assertEquals(3, limiter.getLimit());
+        limiter.acquire();
+        limiter.onResponse(System.nanoTime(), false);
+        assertEquals(3, limiter.getLimit());
+
+        // a burst of failures halves the limit once
+        long requestStart = System.nanoTime();
+        limiter.onResponse(requestStart, true);
+        limiter.onResponse(requestStart, true);
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1, limiter.getDecreaseCount());
+
+        limiter.onResponse(System.nanoTime(), false);
+        assertEquals(2, limiter.getLimit());
+        limiter.release();
+        limiter.release();
+        limiter.release();
+        assertEquals(0, limiter.getInFlight());
+
+        // slow responses decrease the limit
+        AdaptiveConcurrencyLimiter slowLimiter = new AdaptiveConcurrencyLimiter(4, 4, Duration.ofMillis(1));
+        requestStart = System.nanoTime();
+        Thread.sleep(10);
+        slowLimiter.onResponse(requestStart, false);
+        assertEquals(2, slowLimiter.getLimit());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(2, 1, Duration.ofSeconds(10)));
+    }
+
+    @Test
+    public void testCompressedBoundaryImport() throws IOException, InterruptedException {
+        byte[] content = "<rdf:RDF>Boundary file content</rdf:RDF>".repeat(1000).getBytes(UTF_8);
+        byte[] compressed;
+        try (InputStream is = MultipartBodyPublisher.gzip(new ByteArrayInputStream(content))) {
+            compressed = is.readAllBytes();
+        }
+        assertTrue(compressed.length < content.length / 10);
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(content, is.readAllBytes());
+        }
+
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/", 1, UploadCompression.GZIP);
+        addPostBoundaryExpectation(200);
+        assertTrue(cgmesBoundaryServiceRequester.importBoundary(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_001.xml", content)));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(1));
+
+        // the received file part is flagged as gzip encoded, and decodes to the boundary file
+        org.mockserver.model.HttpRequest received = (org.mockserver.model.HttpRequest) mockServer.getClient()
+            .retrieveRecordedRequests(request().withMethod("POST").withPath("/v1/boundaries"))[0];
+        byte[] body = received.getBodyAsRawBytes();
+        // latin-1 maps each byte to a char, so that string indexes are byte indexes
+        String bodyChars = new String(body, StandardCharsets.ISO_8859_1);
+        int partContentStart = bodyChars.indexOf("\r\n\r\n") + 4;
+        assertTrue(bodyChars.substring(0, partContentStart).contains("Content-Encoding: gzip\r\n"));
+        int partContentEnd = bodyChars.lastIndexOf("\r\n--");
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(Arrays.copyOfRange(body, partContentStart, partContentEnd)))) {
+            assertArrayEquals(content, is.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testBoundaryBatchImportRequester() throws ExecutionException, InterruptedException {
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/");
+        List<TransferableFile> boundaryFiles = List.of(new TransferableFile("20210325T1030Z__ENTSOE_EQBD_001.xml", "Boundary file content".getBytes(UTF_8)),
+                                                       new TransferableFile("20210325T1030Z__ENTSOE_TPBD_001.xml", "Boundary file content".getBytes(UTF_8)));
+
+        // status of each file read from the batch response
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries/batch"))
+            .respond(response().withStatusCode(200)
+                .withContentType(MediaType.JSON_UTF_8)
+                .withBody("[{\"filename\": \"20210325T1030Z__ENTSOE_EQBD_001.xml\", \"status\": 200}, {\"filename\": \"20210325T1030Z__ENTSOE_TPBD_001.xml\", \"status\": 409}]"));
+        List<ImportResult> results = cgmesBoundaryServiceRequester.importBoundariesAsync(boundaryFiles).get().orElseThrow();
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isImported());
+        assertFalse(results.get(1).isImported());
+        assertEquals(409, results.get(1).getStatusCode());
+
+        // batch import not supported by the server, files are to be imported one by one
+        mockServer.getClient().clear(request());
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries/batch"))
+            .respond(response().withStatusCode(404));
+        assertTrue(cgmesBoundaryServiceRequester.importBoundariesAsync(boundaryFiles).get().isEmpty());
+        assertTrue(cgmesBoundaryServiceRequester.importBoundariesAsync(boundaryFiles).get().isEmpty());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries/batch"), VerificationTimes.exactly(1));
+    }
+
+    @Test
+    public void testBatchImportPipelineFallback() throws IOException, InterruptedException {
+        putSampleContainer();
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries/batch"))
+            .respond(response().withStatusCode(404));
+        addPostBoundaryExpectation(200);
+
+        // the files of the batch are uploaded one by one by the pipeline
+        BoundaryImportReport report = runPipeline(new BoundaryImportParameters().setBatchUpload(true));
+
+        assertEquals(2, report.getFilesImported().size());
+        assertEquals(1, report.getContainersImported().size());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries/batch"), VerificationTimes.exactly(1));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void mainTest() throws IOException {
+        putSampleContainer();
 
         String[] args = null;
 
@@ -187,6 +465,479 @@ public class BoundaryImportJobTest {
         BoundaryAcquisitionJob.main(args);
     }
 
+    @Test(timeout = 60000)
+    public void testDaemonPolls() throws IOException, InterruptedException {
+        byte[] containerContent = putSampleContainer();
+        BoundaryImportParameters parameters = new BoundaryImportParameters().setDaemon(true).setStateDirectory(tmpFolder.newFolder("state").toPath())
+            .setPollInterval(Duration.ofMillis(50)).setMaxPollInterval(Duration.ofMillis(200));
+        BoundaryAcquisitionJob.AcquisitionContext context = new BoundaryAcquisitionJob.AcquisitionContext(parameters);
+        CgmesBoundaryServiceRequester requester = new CgmesBoundaryServiceRequester("http://localhost:45385/", parameters);
+
+        try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer("sftp://localhost:" + SFTP_SERVER_RULE.getPort(), "dummy", "dummy")) {
+            boundaryAcquisitionServer.open();
+
+            // boundary infos not available and no index of a previous poll: the poll is skipped, rather than importing everything
+            addGetBoundariesInfosExpectation(500, "");
+            assertThrows(IOException.class, () -> BoundaryAcquisitionJob.acquire(boundaryAcquisitionServer, requester, "./boundaries", parameters, context));
+            mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(0));
+
+            mockServer.getClient().clear(request());
+            mockServer.getClient().when(request().withMethod("GET").withPath("/v1/boundaries/infos").withHeader("If-None-Match", "\"v1\""))
+                .respond(response().withStatusCode(304));
+            mockServer.getClient().when(request().withMethod("GET").withPath("/v1/boundaries/infos"))
+                .respond(response().withStatusCode(200).withContentType(MediaType.JSON_UTF_8).withHeader("ETag", "\"v1\"").withBody("[]"));
+            addPostBoundaryExpectation(200);
+            assertEquals(1, BoundaryAcquisitionJob.acquire(boundaryAcquisitionServer, requester, "./boundaries", parameters, context));
+            mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+
+            // second poll: the container is unchanged, nothing is requested to the cgmes boundary server
+            assertEquals(0, BoundaryAcquisitionJob.acquire(boundaryAcquisitionServer, requester, "./boundaries", parameters, context));
+            mockServer.getClient().verify(request().withMethod("GET").withPath("/v1/boundaries/infos"), VerificationTimes.exactly(1));
+
+            // new container holding the same boundary files: the boundary infos are not modified on the server, the index
+            // of the previous polls, which holds the boundaries they imported, is reused
+            SFTP_SERVER_RULE.putFile("/boundaries/20210316T0000Z__ENTSOE_BD_003.zip", containerContent);
+            assertEquals(1, BoundaryAcquisitionJob.acquire(boundaryAcquisitionServer, requester, "./boundaries", parameters, context));
+            mockServer.getClient().verify(request().withMethod("GET").withPath("/v1/boundaries/infos").withHeader("If-None-Match", "\"v1\""), VerificationTimes.exactly(1));
+            mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+
+            // the polling loop stops when its thread is interrupted
+            Thread pollingThread = new Thread(() -> BoundaryAcquisitionJob.poll(boundaryAcquisitionServer, requester, "./boundaries", parameters, context));
+            pollingThread.start();
+            Thread.sleep(300);
+            pollingThread.interrupt();
+            pollingThread.join(10000);
+            assertFalse(pollingThread.isAlive());
+            mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+        }
+    }
+
+    @Test
+    public void testStreamingImportPipeline() throws IOException, InterruptedException {
+        putSampleContainer();
+        addPostBoundaryExpectation(200);
+
+        BoundaryImportReport report = runPipeline(new CgmesBoundaryServiceRequester("http://localhost:45385/", 2),
+                                                  new BoundaryImportParameters().setAcquisitionMode(AcquisitionMode.STREAMING).setUploadConcurrency(2).setQueueCapacity(1)
+                                                      .setParseParallelism(2),
+                                                  new BoundaryIndex(List.of()), new BoundaryContentIndex(), new JobMetrics());
+
+        assertEquals(2, report.getFilesImported().size());
+        assertTrue(report.getFilesAlreadyImported().isEmpty());
+        assertTrue(report.getFilesImportFailed().isEmpty());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void testBatchImportPipeline() throws IOException, InterruptedException {
+        putSampleContainer();
+        mockServer.getClient().when(request().withMethod("POST").withPath("/v1/boundaries/batch"))
+            .respond(response().withStatusCode(200)
+                .withContentType(MediaType.JSON_UTF_8)
+                .withBody("[{\"filename\": \"20210315T0000Z__ENTSOE_EQBD_002.xml\", \"status\": 200}, {\"filename\": \"20210315T0000Z__ENTSOE_TPBD_002.xml\", \"status\": 200}]"));
+
+        BoundaryImportReport report = runPipeline(new BoundaryImportParameters().setBatchUpload(true).setParseParallelism(4));
+
+        assertEquals(2, report.getFilesImported().size());
+        assertEquals(1, report.getContainersImported().size());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries/batch"), VerificationTimes.exactly(1));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(0));
+    }
+
+    @Test
+    public void testJobMetrics() throws IOException, InterruptedException {
+        putSampleContainer();
+        addPostBoundaryExpectation(200);
+
+        JobMetrics metrics = new JobMetrics();
+        BoundaryImportReport report = runPipeline(new CgmesBoundaryServiceRequester("http://localhost:45385/"), new BoundaryImportParameters(),
+                                                  new BoundaryIndex(List.of()), new BoundaryContentIndex(), metrics);
+
+        assertEquals(2, report.getFilesImported().size());
+        assertEquals(1, metrics.getTimer(JobMetrics.Stage.DOWNLOAD).getCount());
+        assertEquals(2, metrics.getTimer(JobMetrics.Stage.UNZIP).getCount());
+        assertEquals(2, metrics.getTimer(JobMetrics.Stage.PARSE_ID).getCount());
+        assertEquals(2, metrics.getTimer(JobMetrics.Stage.DEDUPLICATION).getCount());
+        assertEquals(2, metrics.getTimer(JobMetrics.Stage.UPLOAD).getCount());
+        assertEquals(0, metrics.getTimer(JobMetrics.Stage.LIST_FILES).getCount());
+        JobMetrics.StageTimer uploadTimer = metrics.getTimer(JobMetrics.Stage.UPLOAD);
+        assertTrue(uploadTimer.getPercentileMillis(50) <= uploadTimer.getPercentileMillis(99));
+        assertTrue(uploadTimer.getPercentileMillis(99) <= uploadTimer.getMaxMillis());
+        assertTrue(metrics.getBytesDownloaded() > 0);
+        assertTrue(metrics.getBytesUploaded() > 0);
+        assertEquals(1, metrics.getContainers().size());
+        assertEquals("20210315T0000Z__ENTSOE_BD_002.zip", metrics.getContainers().get(0).get("name"));
+        assertEquals(true, metrics.getContainers().get(0).get("imported"));
+
+        Path runReportFile = tmpFolder.getRoot().toPath().resolve("reports").resolve("run-report.json");
+        metrics.writeReport(runReportFile, report);
+        JsonNode runReport = new ObjectMapper().readTree(runReportFile.toFile());
+        assertEquals(2, runReport.get("filesImported").asInt());
+        assertEquals(metrics.getBytesUploaded(), runReport.get("bytesUploaded").asLong());
+        assertEquals(2, runReport.get("stages").get("UPLOAD").get("count").asInt());
+        assertEquals("20210315T0000Z__ENTSOE_BD_002.zip", runReport.get("containers").get(0).get("name").asText());
+    }
+
+    @Test
+    public void testSpooledAcquisition() throws IOException, InterruptedException {
+        byte[] containerContent = putSampleContainer();
+        SFTP_SERVER_RULE.putFile("/boundaries/20210316T0000Z__ENTSOE_BD_001.zip", "not a zip file", UTF_8);
+
+        Path spoolDirectory = tmpFolder.newFolder("spool").toPath();
+        try (BoundaryAcquisitionServer boundaryAcquisitionServer = new BoundaryAcquisitionServer("sftp://localhost:" + SFTP_SERVER_RULE.getPort(), "dummy", "dummy", 3)) {
+            boundaryAcquisitionServer.open();
+            List<BoundaryContainerInfo> containers = boundaryAcquisitionServer.listFiles("./boundaries");
+            BoundaryContainerInfo container = containers.get(0);
+
+            // integrity checks
+            BoundaryContainerInfo truncated = new BoundaryContainerInfo(container.getFileName(), container.getUrl(), container.getSize() + 1, container.getLastModifiedTime());
+            JobMetrics spoolMetrics = new JobMetrics();
+            assertThrows(IOException.class, () -> boundaryAcquisitionServer.spoolFile(truncated, spoolDirectory, 100, spoolMetrics::addBytesDownloaded));
+            assertThrows(IOException.class, () -> boundaryAcquisitionServer.spoolFile(containers.get(1), spoolDirectory, 100, spoolMetrics::addBytesDownloaded));
+            assertEquals(0, spoolMetrics.getBytesDownloaded());
+
+            // partial download left by a previous attempt, resumed and completed by parallel byte ranges
+            String stagedName = container.getName() + "." + container.getSize() + "-" + container.getLastModifiedTime();
+            long rangeLength = (container.getSize() + 2) / 3;
+            Files.write(spoolDirectory.resolve(stagedName + ".part0-" + rangeLength), Arrays.copyOf(containerContent, 10));
+            // partial file of another range layout, not reused
+            Files.write(spoolDirectory.resolve(stagedName + ".part0-100"), new byte[100]);
+            Path spooledFile = boundaryAcquisitionServer.spoolFile(container, spoolDirectory, 100, spoolMetrics::addBytesDownloaded);
+            assertEquals(spoolDirectory.resolve(stagedName), spooledFile);
+            assertArrayEquals(containerContent, Files.readAllBytes(spooledFile));
+            assertEquals(container.getSize() - 10, spoolMetrics.getBytesDownloaded());
+            try (Stream<Path> spooledFiles = Files.list(spoolDirectory)) {
+                assertEquals(List.of(spooledFile), spooledFiles.collect(Collectors.toList()));
+            }
+
+            // staged containers are not downloaded again, boundary files are read from the staged file
+            long checkoutCount = boundaryAcquisitionServer.getSessionCheckoutCount();
+            addPostBoundaryExpectation(200);
+            BoundaryImportReport report = new BoundaryImportReport();
+            JobMetrics metrics = new JobMetrics();
+            BoundaryImportPipeline pipeline = new BoundaryImportPipeline(boundaryAcquisitionServer, new CgmesBoundaryServiceRequester("http://localhost:45385/"),
+                                                                         new BoundaryImportParameters().setAcquisitionMode(AcquisitionMode.SPOOLED).setSpoolDirectory(spoolDirectory), metrics);
+            pipeline.run(List.of(container), new BoundaryIndex(List.of()), new BoundaryContentIndex(), report);
+            assertEquals(2, report.getFilesImported().size());
+            assertEquals(1, report.getContainersImported().size());
+            assertEquals(checkoutCount, boundaryAcquisitionServer.getSessionCheckoutCount());
+            assertEquals(0, metrics.getBytesDownloaded());
+            assertTrue(Files.exists(spooledFile));
+        }
+    }
+
+    @Test
+    public void spoolDirectoryEvictionTest() throws IOException {
+        Path spoolDirectory = tmpFolder.newFolder("spool").toPath();
+        Path expired = Files.write(spoolDirectory.resolve("20210315T0000Z__ENTSOE_BD_001.zip.10-1615766400000.part0-10"), new byte[10]);
+        Files.setLastModifiedTime(expired, FileTime.from(Instant.now().minus(Duration.ofDays(10))));
+        Path oldest = Files.write(spoolDirectory.resolve("20210315T0000Z__ENTSOE_BD_002.zip.100-1615766400000"), new byte[100]);
+        Files.setLastModifiedTime(oldest, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Path newest = Files.write(spoolDirectory.resolve("20210316T0000Z__ENTSOE_BD_001.zip.100-1615852800000"), new byte[100]);
+        // files not created by the spooled acquisition, such as state files, are never evicted
+        Path stateFile = Files.write(spoolDirectory.resolve("acquisition-state.log"), new byte[1000]);
+        Files.setLastModifiedTime(stateFile, FileTime.from(Instant.now().minus(Duration.ofDays(10))));
+
+        // expired file evicted, then least recently used files until the size limit is met
+        assertEquals(2, SpoolDirectoryEvictor.evict(spoolDirectory, 150, Duration.ofDays(7)));
+        assertFalse(Files.exists(expired));
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(newest));
+        assertTrue(Files.exists(stateFile));
+        assertEquals(0, SpoolDirectoryEvictor.evict(spoolDirectory, 150, Duration.ofDays(7)));
+    }
+
+    @Test
+    public void testContentDeduplication() throws IOException, InterruptedException {
+        putSampleContainer();
+        addPostBoundaryExpectation(200);
+
+        Path stateDirectory = tmpFolder.newFolder("state").toPath();
+        BoundaryIndex boundaryIndex = new BoundaryIndex(List.of());
+        CgmesBoundaryServiceRequester requester = new CgmesBoundaryServiceRequester("http://localhost:45385/");
+        BoundaryImportReport report = runPipeline(requester, new BoundaryImportParameters(), boundaryIndex, BoundaryContentIndex.load(stateDirectory), new JobMetrics());
+        assertEquals(2, report.getFilesImported().size());
+
+        // the boundary files are recognised from their zip header, without unzipping nor parsing them
+        BoundaryContentIndex contentIndex = BoundaryContentIndex.load(stateDirectory);
+        assertEquals(2, contentIndex.size());
+        JobMetrics metrics = new JobMetrics();
+        report = runPipeline(requester, new BoundaryImportParameters(), boundaryIndex, contentIndex, metrics);
+        assertEquals(2, report.getFilesAlreadyImported().size());
+        assertEquals(1, report.getContainersImported().size());
+        assertEquals(0, metrics.getTimer(JobMetrics.Stage.UNZIP).getCount());
+        assertEquals(0, metrics.getTimer(JobMetrics.Stage.PARSE_ID).getCount());
+
+        // unknown ids are parsed again
+        report = runPipeline(requester, new BoundaryImportParameters(), new BoundaryIndex(List.of()), contentIndex, new JobMetrics());
+        assertEquals(2, report.getFilesImported().size());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(4));
+    }
+
+    @Test
+    public void pollingBackoffTest() {
+        PollingBackoff backoff = new PollingBackoff(Duration.ofSeconds(5), Duration.ofSeconds(30), new Random(0));
+
+        // idle polls double the interval up to the maximum, delays are jittered within the interval
+        List<Duration> intervals = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Duration delay = backoff.next(false);
+            intervals.add(backoff.getInterval());
+            assertTrue(delay.compareTo(backoff.getInterval().dividedBy(2)) >= 0);
+            assertTrue(delay.compareTo(backoff.getInterval()) <= 0);
+        }
+        assertEquals(List.of(Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ofSeconds(30), Duration.ofSeconds(30)), intervals);
+
+        // a poll which found containers resets the interval
+        assertTrue(backoff.next(true).compareTo(Duration.ofSeconds(5)) <= 0);
+        assertEquals(Duration.ofSeconds(5), backoff.getInterval());
+
+        assertThrows(IllegalArgumentException.class, () -> new PollingBackoff(Duration.ofSeconds(10), Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void testFilenameDeduplication() throws IOException, InterruptedException {
+        putSampleContainer();
+        addPostBoundaryExpectation(200);
+
+        // the TPBD file name is known by the boundary server, it is skipped without checking its id
+        BoundaryIndex boundaryIndex = new BoundaryIndex(List.of(new BoundaryInfo("urn:uuid:33333333-cccc-cccc-cccc-cccccccccccc", "20210315T0000Z__ENTSOE_TPBD_002.xml", null)));
+        BoundaryImportReport report = runPipeline(new CgmesBoundaryServiceRequester("http://localhost:45385/"),
+                                                  new BoundaryImportParameters().setDeduplicationMode(DeduplicationMode.FILENAME),
+                                                  boundaryIndex, new BoundaryContentIndex(), new JobMetrics());
+
+        assertEquals(List.of("20210315T0000Z__ENTSOE_EQBD_002.xml"), report.getFilesImported());
+        assertEquals(List.of("20210315T0000Z__ENTSOE_TPBD_002.xml"), report.getFilesAlreadyImported());
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(1));
+    }
+
+    @Test(timeout = 60000)
+    public void testPipelineUploadErrors() throws IOException, InterruptedException {
+        putSampleContainer();
+
+        // an upload which cannot be started only fails its boundary file
+        CgmesBoundaryServiceRequester failingRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/") {
+            @Override
+            public CompletableFuture<ImportResult> importBoundaryAsync(TransferableFile boundaryFile) {
+                throw new IllegalStateException("upload error");
+            }
+        };
+        BoundaryImportReport report = runPipeline(failingRequester, new BoundaryImportParameters(), new BoundaryIndex(List.of()), new BoundaryContentIndex(), new JobMetrics());
+        assertTrue(report.getFilesImported().isEmpty());
+        assertEquals(2, report.getFilesImportFailed().size());
+
+        // a dead stage worker stops the whole pipeline instead of leaving the other stages blocked
+        CgmesBoundaryServiceRequester brokenRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/") {
+            @Override
+            public CompletableFuture<ImportResult> importBoundaryAsync(TransferableFile boundaryFile) {
+                throw new AssertionError("upload worker error");
+            }
+        };
+        BoundaryImportParameters parameters = new BoundaryImportParameters().setQueueCapacity(1);
+        assertThrows(IllegalStateException.class, () -> runPipeline(brokenRequester, parameters, new BoundaryIndex(List.of()), new BoundaryContentIndex(), new JobMetrics()));
+        mockServer.getClient().verify(request().withMethod("POST").withPath("/v1/boundaries"), VerificationTimes.exactly(0));
+    }
+
+    @Test
+    public void boundaryImportParametersTest() {
+        BoundaryImportParameters parameters = new BoundaryImportParameters();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parameters.setRangeSize(0));
+        assertEquals("Invalid range-size 0, must be strictly positive", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> parameters.setRangeSize(-1));
+        assertEquals(BoundaryImportParameters.DEFAULT_RANGE_SIZE, parameters.getRangeSize());
+
+        // a stage without worker or queue would never end
+        e = assertThrows(IllegalArgumentException.class, () -> parameters.setQueueCapacity(0));
+        assertEquals("Invalid queue-capacity 0, must be strictly positive", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> parameters.setDownloadConcurrency(0));
+        assertThrows(IllegalArgumentException.class, () -> parameters.setParseParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> parameters.setSessionPoolSize(0));
+        assertThrows(IllegalArgumentException.class, () -> parameters.setUploadConcurrency(-1));
+        assertThrows(IllegalArgumentException.class, () -> parameters.setMaxUploadConcurrency(0));
+
+        // unset values keep their defaults
+        parameters.setSessionPoolSize(null).setMaxUploadConcurrency(null);
+        assertEquals(parameters.getDownloadConcurrency(), parameters.getSessionPoolSize());
+
+        // the spool directory eviction would delete the state files
+        InMemoryPlatformConfig platformConfig = new InMemoryPlatformConfig(FileSystems.getDefault());
+        Path stateDirectory = tmpFolder.getRoot().toPath().resolve("state");
+        platformConfig.createModuleConfig("boundary-import-job").setStringProperty("state-directory", stateDirectory.toString());
+        MapModuleConfig acquisitionConfig = platformConfig.createModuleConfig("acquisition-server");
+        acquisitionConfig.setStringProperty("spool-directory", stateDirectory.resolve("spool").toString());
+        assertEquals(stateDirectory.resolve("spool"), BoundaryImportParameters.load(platformConfig).getSpoolDirectory());
+        acquisitionConfig.setStringProperty("spool-directory", stateDirectory.toString());
+        e = assertThrows(IllegalArgumentException.class, () -> BoundaryImportParameters.load(platformConfig));
+        assertEquals("Invalid spool-directory " + stateDirectory + ", must not be the state-directory", e.getMessage());
+    }
+
+    @Test
+    public void fullModelIdReaderTest() throws IOException {
+        String header = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
+            + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:md=\"http://iec.ch/TC57/61970-552/ModelDescription/1#\">";
+
+        // content decoded as UTF-8 whatever the declared encoding
+        assertEquals("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaa\u00e9",
+                     FullModelIdReader.readId(new ByteArrayInputStream((header + "<md:FullModel rdf:about=\"urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaa\u00e9\"/></rdf:RDF>").getBytes(UTF_8))));
+
+        IOException e = assertThrows(IOException.class, () -> FullModelIdReader.readId(new ByteArrayInputStream((header + "<md:Model/></rdf:RDF>").getBytes(UTF_8))));
+        assertEquals("FullModel element not found", e.getMessage());
+        e = assertThrows(IOException.class, () -> FullModelIdReader.readId(new ByteArrayInputStream((header + "<md:FullModel/></rdf:RDF>").getBytes(UTF_8))));
+        assertEquals("FullModel element has no rdf:about attribute", e.getMessage());
+        assertThrows(IOException.class, () -> FullModelIdReader.readId(new ByteArrayInputStream((header + "<md:FullModel rdf:about=\"urn:uuid").getBytes(UTF_8))));
+    }
+
+    @Test
+    public void boundaryIndexTest() {
+        // boundary infos without id are ignored
+        BoundaryIndex index = new BoundaryIndex(List.of(new BoundaryInfo("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", "20210315T0000Z__ENTSOE_TPBD_002.xml", null),
+                                                        new BoundaryInfo(null, "20210315T0000Z__ENTSOE_EQBD_001.xml", null)));
+        assertTrue(index.containsId("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb"));
+        assertEquals("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", index.getIdByFilename("20210315T0000Z__ENTSOE_TPBD_002.xml"));
+        assertNull(index.getIdByFilename("20210315T0000Z__ENTSOE_EQBD_001.xml"));
+        assertEquals(1, index.size());
+        assertFalse(index.reserve("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb"));
+        assertThrows(IllegalArgumentException.class, () -> index.reserve(null));
+
+        // a boundary found twice in the same run is only imported once
+        assertTrue(index.reserve("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa"));
+        assertFalse(index.reserve("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa"));
+        index.release("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa");
+        assertTrue(index.reserve("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa"));
+        index.confirm("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa", "20210315T0000Z__ENTSOE_EQBD_002.xml");
+        assertEquals("urn:uuid:11111111-aaaa-aaaa-aaaa-aaaaaaaaaaaa", index.getIdByFilename("20210315T0000Z__ENTSOE_EQBD_002.xml"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void acquisitionStateStoreTest() throws IOException {
+        Path stateDirectory = tmpFolder.getRoot().toPath().resolve("state");
+        BoundaryContainerFileName containerFileName = CgmesBoundaryUtils.parseBoundaryContainerFileName("20210315T0000Z__ENTSOE_BD_002.zip").orElseThrow();
+        BoundaryContainerInfo container = new BoundaryContainerInfo(containerFileName, "sftp://localhost:2222/boundaries/20210315T0000Z__ENTSOE_BD_002.zip", 1000, 1615766400000L);
+
+        AcquisitionStateStore stateStore = AcquisitionStateStore.load(stateDirectory);
+        assertFalse(stateStore.isUnchanged(container));
+        stateStore.markProcessed(container);
+        assertTrue(stateStore.isUnchanged(container));
+
+        // the state is kept between runs, a modified container has to be acquired again
+        BoundaryContainerInfo modifiedContainer = new BoundaryContainerInfo(containerFileName, "sftp://localhost:2222/boundaries/20210315T0000Z__ENTSOE_BD_002.zip", 1200, 1615852800000L);
+        stateStore = AcquisitionStateStore.load(stateDirectory);
+        assertTrue(stateStore.isUnchanged(container));
+        assertFalse(stateStore.isUnchanged(modifiedContainer));
+        stateStore.markProcessed(modifiedContainer);
+
+        // only the last state of the container is kept
+        stateStore = AcquisitionStateStore.load(stateDirectory);
+        assertFalse(stateStore.isUnchanged(container));
+        assertTrue(stateStore.isUnchanged(modifiedContainer));
+        assertEquals(1, Files.readAllLines(stateDirectory.resolve(AcquisitionStateStore.STATE_FILE_NAME)).size());
+
+        assertTrue(stateStore.getWatermark().isEmpty());
+        stateStore.setWatermark(containerFileName);
+        assertEquals(Optional.of(containerFileName), AcquisitionStateStore.load(stateDirectory).getWatermark());
+    }
+
+    @Test
+    public void boundaryContainerFileNameTest() {
+        BoundaryContainerFileName fileName = CgmesBoundaryUtils.parseBoundaryContainerFileName("20210328T0030Z__ENTSOE_BD_006.zip").orElseThrow();
+        assertEquals("20210328T0030Z__ENTSOE_BD_006.zip", fileName.getName());
+        assertEquals(OffsetDateTime.of(2021, 3, 28, 0, 30, 0, 0, ZoneOffset.UTC), fileName.getEffectiveDateTime());
+        assertEquals(6, fileName.getVersion());
+
+        // ordered by effective datetime, then by version
+        assertTrue(fileName.compareTo(CgmesBoundaryUtils.parseBoundaryContainerFileName("20210328T0030Z__ENTSOE_BD_007.zip").orElseThrow()) < 0);
+        assertTrue(fileName.compareTo(CgmesBoundaryUtils.parseBoundaryContainerFileName("20210325T1030Z__ENTSOE_BD_009.zip").orElseThrow()) > 0);
+
+        assertTrue(CgmesBoundaryUtils.parseBoundaryContainerFileName("20210328T0030Z__ENTSOE_BD_aaa.zip").isEmpty());
+        assertTrue(CgmesBoundaryUtils.parseBoundaryContainerFileName("20211328T0030Z__ENTSOE_BD_006.zip").isEmpty());
+        assertTrue(CgmesBoundaryUtils.parseBoundaryContainerFileName("20210328T0030Z__ENTSOE_BD_006.doc").isEmpty());
+        assertTrue(CgmesBoundaryUtils.parseBoundaryContainerFileName("20210328T0030Z__ENTSOE_BD_000.zip").isEmpty());
+
+        assertEquals(BoundaryFileType.EQBD, CgmesBoundaryUtils.getBoundaryFileType("20210315T0000Z__ENTSOE_EQBD_002.xml"));
+        assertEquals(BoundaryFileType.TPBD, CgmesBoundaryUtils.getBoundaryFileType("20210315T0000Z__ENTSOE_TPBD_002.xml"));
+        assertNull(CgmesBoundaryUtils.getBoundaryFileType("20210315T0000Z__ENTSOE_EQ_002.xml"));
+        assertNull(CgmesBoundaryUtils.getBoundaryFileType("20210315T0000Z__ENTSOE_TPBD_xml"));
+        assertFalse(CgmesBoundaryUtils.isBoundaryFileName("20210315T0000Z__ENTSOE_TPBD_002.txt"));
+    }
+
+    @Test
+    public void testGetBoundariesInfos() throws InterruptedException {
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/");
+
+        // only the id and the file name are read, other fields are skipped
+        addGetBoundariesInfosExpectation(200, "[{\"id\":\"urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb\",\"scenarioTime\":\"2020-02-02T00:00\",\"extra\":{\"id\":\"other\"},\"filename\":\"20210315T0000Z__ENTSOE_TPBD_002.xml\"}]");
+        List<BoundaryInfo> infos = cgmesBoundaryServiceRequester.getBoundariesInfos();
+        assertEquals(1, infos.size());
+        assertEquals("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", infos.get(0).getId());
+        assertEquals("20210315T0000Z__ENTSOE_TPBD_002.xml", infos.get(0).getFilename());
+        assertNull(infos.get(0).getScenarioTime());
+
+        // boundary infos without id are skipped
+        mockServer.getClient().clear(request());
+        addGetBoundariesInfosExpectation(200, "[{\"filename\":\"20210315T0000Z__ENTSOE_EQBD_002.xml\"},{\"id\":\"urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb\",\"filename\":\"20210315T0000Z__ENTSOE_TPBD_002.xml\"}]");
+        infos = cgmesBoundaryServiceRequester.getBoundariesInfos();
+        assertEquals(1, infos.size());
+        assertEquals("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", infos.get(0).getId());
+
+        mockServer.getClient().clear(request());
+        addGetBoundariesInfosExpectation(200, "{\"id\":\"urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb\"}");
+        assertTrue(cgmesBoundaryServiceRequester.getBoundariesInfos().isEmpty());
+        assertTrue(cgmesBoundaryServiceRequester.fetchBoundariesInfos(new BoundaryInfosCache()).isEmpty());
+
+        mockServer.getClient().clear(request());
+        addGetBoundariesInfosExpectation(500, "");
+        assertTrue(cgmesBoundaryServiceRequester.getBoundariesInfos().isEmpty());
+        assertTrue(cgmesBoundaryServiceRequester.fetchBoundariesInfos(new BoundaryInfosCache()).isEmpty());
+
+        // no boundary on the server, but the boundary infos were fetched
+        mockServer.getClient().clear(request());
+        addGetBoundariesInfosExpectation(200, "[]");
+        assertEquals(Optional.of(List.of()), cgmesBoundaryServiceRequester.fetchBoundariesInfos(new BoundaryInfosCache()));
+    }
+
+    @Test
+    public void testBoundariesInfosCache() throws IOException, InterruptedException {
+        CgmesBoundaryServiceRequester cgmesBoundaryServiceRequester = new CgmesBoundaryServiceRequester("http://localhost:45385/");
+        Path stateDirectory = tmpFolder.newFolder("state").toPath();
+
+        mockServer.getClient().when(request().withMethod("GET").withPath("/v1/boundaries/infos").withHeader("If-None-Match", "\"v1\""))
+            .respond(response().withStatusCode(304));
+        mockServer.getClient().when(request().withMethod("GET").withPath("/v1/boundaries/infos"))
+            .respond(response().withStatusCode(200)
+                .withContentType(MediaType.JSON_UTF_8)
+                .withHeader("ETag", "\"v1\"")
+                .withBody("[{\"id\":\"urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb\",\"filename\":\"20210315T0000Z__ENTSOE_TPBD_002.xml\"}]"));
+
+        // nothing cached, full fetch
+        List<BoundaryInfo> infos = cgmesBoundaryServiceRequester.getBoundariesInfos(BoundaryInfosCache.load(stateDirectory));
+        assertEquals(1, infos.size());
+
+        // cached boundary infos revalidated by a following run
+        BoundaryInfosCache cache = BoundaryInfosCache.load(stateDirectory);
+        assertEquals(Optional.of("\"v1\""), cache.getETag());
+        infos = cgmesBoundaryServiceRequester.getBoundariesInfos(cache);
+        assertEquals(1, infos.size());
+        assertEquals("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", infos.get(0).getId());
+        assertEquals("20210315T0000Z__ENTSOE_TPBD_002.xml", infos.get(0).getFilename());
+        mockServer.getClient().verify(request().withMethod("GET").withPath("/v1/boundaries/infos").withHeader("If-None-Match", "\"v1\""), VerificationTimes.exactly(1));
+
+        // server without ETag support, nothing is cached
+        mockServer.getClient().clear(request());
+        addGetBoundariesInfosExpectation(200, "[]");
+        assertTrue(cgmesBoundaryServiceRequester.getBoundariesInfos(cache).isEmpty());
+        assertTrue(cache.getETag().isEmpty());
+        assertTrue(BoundaryInfosCache.load(stateDirectory).getETag().isEmpty());
+
+        // boundary infos without id are not persisted, a missing file name is read back as null
+        cache.update("\"v2\"", List.of(new BoundaryInfo("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", null, null),
+                                       new BoundaryInfo(null, "20210315T0000Z__ENTSOE_EQBD_002.xml", null)));
+        infos = BoundaryInfosCache.load(stateDirectory).getBoundariesInfos();
+        assertEquals(1, infos.size());
+        assertEquals("urn:uuid:22222222-bbbb-bbbb-bbbb-bbbbbbbbbbbb", infos.get(0).getId());
+        assertNull(infos.get(0).getFilename());
+    }
+
     @Test
     public void boundaryInfoTest() {
         LocalDateTime date = LocalDateTime.of(2021, 5, 10, 10, 0, 0);